@@ -49,6 +49,9 @@ public class OngoingNotificationService extends Service {
             case CONNECTING:
                 NotificationCenter.showOngoingNotification(R.string.connecting);
                 break;
+            case PAIRING_LOST:
+                NotificationCenter.showOngoingNotification(R.string.pairing_lost);
+                break;
         }
     }
 
@@ -0,0 +1,154 @@
+package sugar.free.sightbenchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import sugar.free.sightparser.Factory;
+import sugar.free.sightparser.applayer.messages.AppLayerMessage;
+import sugar.free.sightparser.applayer.messages.configuration.CloseWriteSessionMessage;
+import sugar.free.sightparser.applayer.messages.configuration.OpenWriteSessionMessage;
+import sugar.free.sightparser.applayer.messages.configuration.ReadConfigurationBlockMessage;
+import sugar.free.sightparser.applayer.messages.configuration.WriteConfigurationBlockMessage;
+import sugar.free.sightparser.applayer.messages.configuration.WriteDateTimeMessage;
+import sugar.free.sightparser.applayer.messages.connection.ActivateServiceMessage;
+import sugar.free.sightparser.applayer.messages.connection.BindMessage;
+import sugar.free.sightparser.applayer.messages.connection.ConnectMessage;
+import sugar.free.sightparser.applayer.messages.connection.DeactivateAllServicesMessage;
+import sugar.free.sightparser.applayer.messages.connection.DisconnectMessage;
+import sugar.free.sightparser.applayer.messages.connection.ServiceChallengeMessage;
+import sugar.free.sightparser.applayer.messages.history.CloseHistoryReadingSessionMessage;
+import sugar.free.sightparser.applayer.messages.history.OpenHistoryReadingSessionMessage;
+import sugar.free.sightparser.applayer.messages.history.ReadHistoryFramesMessage;
+import sugar.free.sightparser.applayer.messages.remote_control.AvailableBolusesMessage;
+import sugar.free.sightparser.applayer.messages.remote_control.BolusMessage;
+import sugar.free.sightparser.applayer.messages.remote_control.CancelBolusMessage;
+import sugar.free.sightparser.applayer.messages.remote_control.CancelTBRMessage;
+import sugar.free.sightparser.applayer.messages.remote_control.ChangeTBRMessage;
+import sugar.free.sightparser.applayer.messages.remote_control.DismissAlertMessage;
+import sugar.free.sightparser.applayer.messages.remote_control.MuteAlertMessage;
+import sugar.free.sightparser.applayer.messages.remote_control.SetPumpStatusMessage;
+import sugar.free.sightparser.applayer.messages.remote_control.SetTBRMessage;
+import sugar.free.sightparser.applayer.messages.status.ActiveAlertMessage;
+import sugar.free.sightparser.applayer.messages.status.ActiveBolusesMessage;
+import sugar.free.sightparser.applayer.messages.status.BatteryAmountMessage;
+import sugar.free.sightparser.applayer.messages.status.CartridgeAmountMessage;
+import sugar.free.sightparser.applayer.messages.status.CurrentBasalMessage;
+import sugar.free.sightparser.applayer.messages.status.CurrentTBRMessage;
+import sugar.free.sightparser.applayer.messages.status.DailyTotalMessage;
+import sugar.free.sightparser.applayer.messages.status.FirmwareVersionMessage;
+import sugar.free.sightparser.applayer.messages.status.PumpStatusMessage;
+import sugar.free.sightparser.applayer.messages.status.ReadDateTimeMessage;
+import sugar.free.sightparser.applayer.messages.status.WarrantyTimerMessage;
+import sugar.free.sightparser.applayer.messages.status_param.ReadStatusParamBlockMessage;
+import sugar.free.sightparser.crypto.Cryptograph;
+import sugar.free.sightparser.pipeline.ByteBuf;
+import sugar.free.sightparser.pipeline.DecodeResult;
+
+/**
+ * Decodes a response of each message the app layer knows, including the CRC check where the message has one.
+ * Responses carry a zeroed payload followed by its CRC, which every parser accepts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AppLayerBenchmark {
+
+    private static final int PAYLOAD_LENGTH = 128;
+    private static final Map<String, Factory<AppLayerMessage>> MESSAGES = new HashMap<>();
+
+    static {
+        put(BindMessage::new);
+        put(ConnectMessage::new);
+        put(DisconnectMessage::new);
+        put(ServiceChallengeMessage::new);
+        put(ActivateServiceMessage::new);
+        put(DeactivateAllServicesMessage::new);
+        put(PumpStatusMessage::new);
+        put(CurrentBasalMessage::new);
+        put(CartridgeAmountMessage::new);
+        put(BatteryAmountMessage::new);
+        put(CurrentTBRMessage::new);
+        put(ActiveBolusesMessage::new);
+        put(FirmwareVersionMessage::new);
+        put(WarrantyTimerMessage::new);
+        put(ReadDateTimeMessage::new);
+        put(ActiveAlertMessage::new);
+        put(DailyTotalMessage::new);
+        put(BolusMessage::new);
+        put(CancelBolusMessage::new);
+        put(CancelTBRMessage::new);
+        put(SetTBRMessage::new);
+        put(ChangeTBRMessage::new);
+        put(AvailableBolusesMessage::new);
+        put(SetPumpStatusMessage::new);
+        put(MuteAlertMessage::new);
+        put(DismissAlertMessage::new);
+        put(ReadConfigurationBlockMessage::new);
+        put(OpenWriteSessionMessage::new);
+        put(CloseWriteSessionMessage::new);
+        put(WriteConfigurationBlockMessage::new);
+        put(WriteDateTimeMessage::new);
+        put(CloseHistoryReadingSessionMessage::new);
+        put(OpenHistoryReadingSessionMessage::new);
+        put(ReadHistoryFramesMessage::new);
+        put(ReadStatusParamBlockMessage::new);
+    }
+
+    private static void put(Factory<AppLayerMessage> factory) {
+        MESSAGES.put(factory.create().getClass().getSimpleName(), factory);
+    }
+
+    @Param({"BindMessage", "ConnectMessage", "DisconnectMessage", "ServiceChallengeMessage", "ActivateServiceMessage",
+            "DeactivateAllServicesMessage", "PumpStatusMessage", "CurrentBasalMessage", "CartridgeAmountMessage",
+            "BatteryAmountMessage", "CurrentTBRMessage", "ActiveBolusesMessage", "FirmwareVersionMessage",
+            "WarrantyTimerMessage", "ReadDateTimeMessage", "ActiveAlertMessage", "DailyTotalMessage", "BolusMessage",
+            "CancelBolusMessage", "CancelTBRMessage", "SetTBRMessage", "ChangeTBRMessage", "AvailableBolusesMessage",
+            "SetPumpStatusMessage", "MuteAlertMessage", "DismissAlertMessage", "ReadConfigurationBlockMessage",
+            "OpenWriteSessionMessage", "CloseWriteSessionMessage", "WriteConfigurationBlockMessage",
+            "WriteDateTimeMessage", "CloseHistoryReadingSessionMessage", "OpenHistoryReadingSessionMessage",
+            "ReadHistoryFramesMessage", "ReadStatusParamBlockMessage"})
+    public String message;
+
+    private byte[] frame;
+    private DecodeResult<AppLayerMessage> result = new DecodeResult<>();
+
+    @Setup
+    public void setup() throws Exception {
+        Factory<AppLayerMessage> factory = MESSAGES.get(message);
+        if (factory == null) throw new IllegalArgumentException("Unknown message " + message);
+        AppLayerMessage appLayerMessage = factory.create();
+        byte[] payload = new byte[PAYLOAD_LENGTH];
+        ByteBuf byteBuf = new ByteBuf(6 + PAYLOAD_LENGTH + 2);
+        byteBuf.putByte((byte) 0x20);
+        byteBuf.putByte(appLayerMessage.getService().getServiceID());
+        byteBuf.putShort(appLayerMessage.getCommand());
+        byteBuf.putShort((short) 0x0000);
+        byteBuf.putBytes(payload);
+        byteBuf.putUInt16LE(Cryptograph.calculateCRC(payload));
+        frame = byteBuf.getBytes();
+        if (!AppLayerMessage.deserialize(ByteBuf.wrap(frame), result)
+                || result.getMessage().getClass() != appLayerMessage.getClass())
+            throw new IllegalStateException(message + " does not decode: " + result.getError());
+    }
+
+    @Benchmark
+    public boolean deserialize() throws Exception {
+        return AppLayerMessage.deserialize(ByteBuf.wrap(frame), result);
+    }
+}
@@ -0,0 +1,72 @@
+package sugar.free.sightbenchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import sugar.free.sightparser.authlayer.AuthLayerMessage;
+import sugar.free.sightparser.authlayer.DataMessage;
+import sugar.free.sightparser.authlayer.Nonce;
+import sugar.free.sightparser.crypto.CCMCipher;
+import sugar.free.sightparser.pipeline.ByteBuf;
+import sugar.free.sightparser.pipeline.DecodeResult;
+
+/**
+ * Encrypted {@link DataMessage}s, the frames that carry every app layer message.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AuthLayerBenchmark {
+
+    @Param({"16", "128", "512"})
+    public int payloadLength;
+
+    private CCMCipher cipher;
+    private DataMessage dataMessage;
+    private Nonce nonce = new Nonce();
+    private byte[] frame;
+    private DecodeResult<AuthLayerMessage> result = new DecodeResult<>();
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        byte[] key = new byte[16];
+        random.nextBytes(key);
+        cipher = new CCMCipher(key);
+        byte[] payload = new byte[payloadLength];
+        random.nextBytes(payload);
+        dataMessage = new DataMessage();
+        dataMessage.setData(payload);
+        nonce.increment();
+        ByteBuf byteBuf = dataMessage.serialize(nonce, 1, cipher);
+        frame = byteBuf.getBytes();
+        if (!AuthLayerMessage.deserialize(ByteBuf.wrap(frame), null, cipher, result))
+            throw new IllegalStateException("Frame does not decode: " + result.getError());
+    }
+
+    @Benchmark
+    public ByteBuf serialize() {
+        nonce.increment();
+        return dataMessage.serialize(nonce, 1, cipher);
+    }
+
+    @Benchmark
+    public boolean deserialize() {
+        return AuthLayerMessage.deserialize(ByteBuf.wrap(frame), null, cipher, result);
+    }
+}
@@ -0,0 +1,87 @@
+package sugar.free.sightbenchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import sugar.free.sightparser.pipeline.ByteBuf;
+
+/**
+ * Primitive reads and writes over a frame of 32 fields, the mix the message parsers use.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ByteBufBenchmark {
+
+    private static final int FIELDS = 32;
+    private static final int FIELD_LENGTH = 1 + 2 + 2 + 4 + 8;
+
+    private byte[] frame;
+    private byte[] field = new byte[8];
+
+    @Setup
+    public void setup() {
+        frame = new byte[FIELDS * FIELD_LENGTH];
+        new Random(0).nextBytes(frame);
+    }
+
+    @Benchmark
+    public ByteBuf write() {
+        ByteBuf byteBuf = new ByteBuf(frame.length);
+        for (int i = 0; i < FIELDS; i++) {
+            byteBuf.putByte((byte) i);
+            byteBuf.putShort((short) i);
+            byteBuf.putUInt16LE(i);
+            byteBuf.putUInt32LE(i);
+            byteBuf.putBytes(field);
+        }
+        return byteBuf;
+    }
+
+    @Benchmark
+    public void read(Blackhole blackhole) {
+        ByteBuf byteBuf = ByteBuf.wrap(frame);
+        for (int i = 0; i < FIELDS; i++) {
+            blackhole.consume(byteBuf.readByte());
+            blackhole.consume(byteBuf.readShort());
+            blackhole.consume(byteBuf.readUInt16LE());
+            blackhole.consume(byteBuf.readUInt32LE());
+            byteBuf.skip(8);
+        }
+    }
+
+    @Benchmark
+    public void readBytes(Blackhole blackhole) {
+        ByteBuf byteBuf = ByteBuf.wrap(frame);
+        for (int i = 0; i < FIELDS; i++) {
+            byteBuf.skip(FIELD_LENGTH - 8);
+            blackhole.consume(byteBuf.readBytes(8));
+        }
+    }
+
+    @Benchmark
+    public void get(Blackhole blackhole) {
+        ByteBuf byteBuf = ByteBuf.wrap(frame);
+        for (int i = 0, position = 0; i < FIELDS; i++, position += FIELD_LENGTH) {
+            blackhole.consume(byteBuf.getByte(position));
+            blackhole.consume(byteBuf.getShort(position + 1));
+            blackhole.consume(byteBuf.getUInt16LE(position + 3));
+            blackhole.consume(byteBuf.getUInt32LE(position + 5));
+        }
+    }
+}
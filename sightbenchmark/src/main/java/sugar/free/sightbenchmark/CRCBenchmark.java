@@ -0,0 +1,67 @@
+package sugar.free.sightbenchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import sugar.free.sightparser.crypto.CRC;
+import sugar.free.sightparser.crypto.Cryptograph;
+import sugar.free.sightparser.pipeline.ByteBuf;
+
+/**
+ * CRC over the lengths the layers check: a configuration block, a KeyRequest frame and a history page.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CRCBenchmark {
+
+    @Param({"46", "309", "1024"})
+    public int length;
+
+    private byte[] bytes;
+    private ByteBuf byteBuf;
+
+    @Setup
+    public void setup() {
+        bytes = new byte[length + 16];
+        new Random(0).nextBytes(bytes);
+        byteBuf = ByteBuf.wrap(bytes);
+    }
+
+    @Benchmark
+    public int calculateCRC() {
+        return Cryptograph.calculateCRC(ByteBuf.wrap(bytes, 0, length));
+    }
+
+    /**
+     * How the auth layer checks a frame, the covered range sits at an offset inside the frame.
+     */
+    @Benchmark
+    public int calculateCRCRange() {
+        return Cryptograph.calculateCRC(byteBuf, 8, length);
+    }
+
+    /**
+     * The same range fed in two parts, e.g. header and payload of a frame.
+     */
+    @Benchmark
+    public int updateIncrementally() {
+        int crc = CRC.update(CRC.INITIAL, bytes, 8, 21);
+        return CRC.update(crc, bytes, 29, length - 21);
+    }
+}
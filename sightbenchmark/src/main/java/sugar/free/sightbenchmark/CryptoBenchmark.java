@@ -0,0 +1,96 @@
+package sugar.free.sightbenchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import sugar.free.sightparser.crypto.CCMCipher;
+import sugar.free.sightparser.crypto.Cryptograph;
+
+/**
+ * The per-message crypto of the auth layer. {@link #legacySeal()} is the one-shot CTR plus CBC-MAC path
+ * that {@link CCMCipher#seal} replaced, kept for comparison.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CryptoBenchmark {
+
+    private static final int HEADER_OFFSET = 8;
+    private static final int HEADER_LENGTH = 21;
+    private static final int NONCE_OFFSET = 16;
+
+    /**
+     * Payload lengths of a status response, a configuration block and a history page.
+     */
+    @Param({"16", "128", "512"})
+    public int payloadLength;
+
+    private byte[] key = new byte[16];
+    private byte[] nonce = new byte[13];
+    private byte[] header = new byte[HEADER_LENGTH];
+    private byte[] payload;
+    private byte[] frame;
+    private byte[] sealed;
+    private byte[] opened;
+    private CCMCipher cipher;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        random.nextBytes(key);
+        random.nextBytes(nonce);
+        random.nextBytes(header);
+        payload = new byte[payloadLength];
+        random.nextBytes(payload);
+        frame = new byte[HEADER_OFFSET + HEADER_LENGTH + payloadLength + 8];
+        System.arraycopy(header, 0, frame, HEADER_OFFSET, HEADER_LENGTH);
+        System.arraycopy(payload, 0, frame, HEADER_OFFSET + HEADER_LENGTH, payloadLength);
+        cipher = new CCMCipher(key);
+        sealed = frame.clone();
+        cipher.seal(sealed, HEADER_OFFSET, HEADER_LENGTH, NONCE_OFFSET, payloadLength);
+        opened = new byte[sealed.length];
+    }
+
+    @Benchmark
+    public byte[] encryptDataCTR() {
+        return Cryptograph.encryptDataCTR(payload, key, nonce);
+    }
+
+    @Benchmark
+    public byte[] produceCCMTag() {
+        return Cryptograph.produceCCMTag(nonce, payload, header, key);
+    }
+
+    @Benchmark
+    public byte[] legacySeal() {
+        Cryptograph.produceCCMTag(nonce, payload, header, key);
+        return Cryptograph.encryptDataCTR(payload, key, nonce);
+    }
+
+    @Benchmark
+    public byte[] seal() {
+        cipher.seal(frame, HEADER_OFFSET, HEADER_LENGTH, NONCE_OFFSET, payloadLength);
+        return frame;
+    }
+
+    @Benchmark
+    public boolean open() {
+        System.arraycopy(sealed, 0, opened, 0, sealed.length);
+        return cipher.open(opened, HEADER_OFFSET, HEADER_LENGTH, NONCE_OFFSET, payloadLength);
+    }
+}
@@ -0,0 +1,88 @@
+package sugar.free.sightbenchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import sugar.free.sightparser.applayer.descriptors.Service;
+import sugar.free.sightparser.applayer.descriptors.history_frames.HistoryFrame;
+import sugar.free.sightparser.applayer.messages.AppLayerMessage;
+import sugar.free.sightparser.applayer.messages.history.ReadHistoryFramesMessage;
+import sugar.free.sightparser.crypto.Cryptograph;
+import sugar.free.sightparser.pipeline.ByteBuf;
+import sugar.free.sightparser.pipeline.DecodeResult;
+
+/**
+ * Decodes history pages of one frame type, or of all types in turn, at several page sizes.
+ * The time per page should grow linearly with the number of frames.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HistoryBenchmark {
+
+    private static final short[] FRAME_TYPES = {0x0303, 0x6A03, (short) 0x9503, (short) 0xC300, (short) 0xA500,
+            (short) 0xCF0C, (short) 0xC003, 0x6900, 0x6600, 0x0F00, (short) 0xF300, 0x0A05, 0x5005};
+    private static final int BODY_LENGTH = 32;
+
+    /**
+     * The event type in hex or ALL.
+     */
+    @Param({"ALL", "0303", "6A03", "9503", "C300", "A500", "CF0C", "C003", "6900", "6600", "0F00", "F300", "0A05", "5005"})
+    public String frameType;
+
+    @Param({"1", "8", "64"})
+    public int frameCount;
+
+    private byte[] frame;
+    private DecodeResult<AppLayerMessage> result = new DecodeResult<>();
+
+    @Setup
+    public void setup() throws Exception {
+        int frameLength = 2 + 2 + 12 + BODY_LENGTH;
+        ByteBuf page = new ByteBuf(4 + frameCount * frameLength);
+        page.putUInt16LE(0);
+        page.putUInt16LE(frameCount);
+        for (int i = 0; i < frameCount; i++) {
+            short eventType = frameType.equals("ALL") ? FRAME_TYPES[i % FRAME_TYPES.length]
+                    : (short) Integer.parseInt(frameType, 16);
+            if (HistoryFrame.HISTORY_FRAMES.get(eventType) == null)
+                throw new IllegalArgumentException("Unknown frame type " + frameType);
+            page.putUInt16LE(frameLength - 2);
+            page.putShort(eventType);
+            page.putBytes((byte) 0x00, 8);
+            page.putUInt32LE(i);
+            page.putBytes((byte) 0x00, BODY_LENGTH);
+        }
+        byte[] payload = page.getBytes();
+        ByteBuf byteBuf = new ByteBuf(6 + payload.length + 2);
+        byteBuf.putByte((byte) 0x20);
+        byteBuf.putByte(Service.HISTORY.getServiceID());
+        byteBuf.putShort(new ReadHistoryFramesMessage().getCommand());
+        byteBuf.putShort((short) 0x0000);
+        byteBuf.putBytes(payload);
+        byteBuf.putUInt16LE(Cryptograph.calculateCRC(payload));
+        frame = byteBuf.getBytes();
+        if (!AppLayerMessage.deserialize(ByteBuf.wrap(frame), result)
+                || ((ReadHistoryFramesMessage) result.getMessage()).getHistoryFrames().size() != frameCount)
+            throw new IllegalStateException("Page does not decode: " + result.getError());
+    }
+
+    @Benchmark
+    public boolean parse() throws Exception {
+        return AppLayerMessage.deserialize(ByteBuf.wrap(frame), result);
+    }
+}
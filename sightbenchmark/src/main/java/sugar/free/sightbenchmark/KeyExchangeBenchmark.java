@@ -0,0 +1,44 @@
+package sugar.free.sightbenchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import sugar.free.sightparser.crypto.Cryptograph;
+import sugar.free.sightparser.crypto.DerivedKeys;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KeyExchangeBenchmark {
+
+    private byte[] secret = new byte[64];
+    private byte[] random = new byte[28];
+    private byte[] peerRandom = new byte[28];
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        random.nextBytes(secret);
+        random.nextBytes(this.random);
+        random.nextBytes(peerRandom);
+    }
+
+    @Benchmark
+    public DerivedKeys deriveKeys() {
+        return Cryptograph.deriveKeys(secret, random, peerRandom);
+    }
+}
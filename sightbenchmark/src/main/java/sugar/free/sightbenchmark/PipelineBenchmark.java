@@ -0,0 +1,190 @@
+package sugar.free.sightbenchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import sugar.free.sightparser.MapDataStorage;
+import sugar.free.sightparser.NonceJournal;
+import sugar.free.sightparser.Transport;
+import sugar.free.sightparser.applayer.descriptors.HistoryReadingDirection;
+import sugar.free.sightparser.applayer.descriptors.HistoryType;
+import sugar.free.sightparser.applayer.descriptors.configuration_blocks.ActiveProfileBlock;
+import sugar.free.sightparser.applayer.messages.AppLayerMessage;
+import sugar.free.sightparser.applayer.messages.configuration.CloseWriteSessionMessage;
+import sugar.free.sightparser.applayer.messages.configuration.OpenWriteSessionMessage;
+import sugar.free.sightparser.applayer.messages.configuration.WriteConfigurationBlockMessage;
+import sugar.free.sightparser.applayer.messages.history.CloseHistoryReadingSessionMessage;
+import sugar.free.sightparser.applayer.messages.history.OpenHistoryReadingSessionMessage;
+import sugar.free.sightparser.applayer.messages.history.ReadHistoryFramesMessage;
+import sugar.free.sightparser.applayer.messages.status.PumpStatusMessage;
+import sugar.free.sightparser.handling.MessageRequest;
+import sugar.free.sightparser.handling.RequestCallback;
+import sugar.free.sightparser.pipeline.Pipeline;
+import sugar.free.sightparser.pipeline.Status;
+import sugar.free.sightsimulator.PumpSimulator;
+
+/**
+ * Round trips of app layer requests through the whole pipeline to the simulated pump over an in-memory link.
+ * Every operation is one request, from handing it to the request worker until its callback has been called,
+ * so the sample time mode reports the latency percentiles and the throughput mode the messages per second.
+ * Running with -Pjmh=Pipeline writes both to the JSON results file.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PipelineBenchmark {
+
+    private static final long TIMEOUT = 10000;
+
+    /**
+     * Enough events that a history session only has to be reopened every few thousand reads.
+     */
+    private static final int HISTORY_EVENTS = 20000;
+
+    @Param({"110", "1024"})
+    public int mtu;
+
+    private PumpSimulator simulator;
+    private Transport transport;
+    private Pipeline pipeline;
+    private File journal;
+    private Status status = Status.DISCONNECTED;
+    private int profile = 0;
+
+    @Setup
+    public void setup() throws Exception {
+        simulator = new PumpSimulator();
+        simulator.getState().getHistory().generate(HISTORY_EVENTS, 0);
+        transport = simulator.connectInMemory(mtu);
+        transport.connect();
+        journal = File.createTempFile("benchmark", ".journal");
+        pipeline = new Pipeline(new MapDataStorage(), new NonceJournal(journal), this::onStatusChange);
+        pipeline.setTransport(transport);
+        pipeline.startWriting();
+        pipeline.startReading();
+        pipeline.establishPairing();
+        awaitStatus(Status.CONNECTED);
+        openHistoryReadingSession();
+        request(new OpenWriteSessionMessage());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        request(new CloseHistoryReadingSessionMessage());
+        request(new CloseWriteSessionMessage());
+        pipeline.disconnect();
+        awaitStatus(Status.DISCONNECTED);
+        pipeline.stopWriting();
+        transport.close();
+        pipeline.stopReading();
+        simulator.close();
+        journal.delete();
+    }
+
+    private synchronized void onStatusChange(Status status) {
+        this.status = status;
+        notifyAll();
+    }
+
+    private synchronized void awaitStatus(Status status) throws Exception {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (this.status != status) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) throw new TimeoutException("Status " + this.status + " instead of " + status);
+            wait(remaining);
+        }
+    }
+
+    private void openHistoryReadingSession() throws Exception {
+        OpenHistoryReadingSessionMessage openMessage = new OpenHistoryReadingSessionMessage();
+        openMessage.setHistoryType(HistoryType.ALL);
+        openMessage.setReadingDirection(HistoryReadingDirection.FORWARD);
+        openMessage.setOffset(0);
+        request(openMessage);
+    }
+
+    private AppLayerMessage request(AppLayerMessage message) throws Exception {
+        Response response = new Response();
+        pipeline.requestMessage(new MessageRequest(message, response));
+        return response.await();
+    }
+
+    @Benchmark
+    public AppLayerMessage statusPolling() throws Exception {
+        return request(new PumpStatusMessage());
+    }
+
+    /**
+     * Reads one page, the session is reopened from the first event once the end of the history has been reached.
+     */
+    @Benchmark
+    public AppLayerMessage historyRead() throws Exception {
+        ReadHistoryFramesMessage readMessage = (ReadHistoryFramesMessage) request(new ReadHistoryFramesMessage());
+        if (readMessage.getLatestEventNumber() == -1) openHistoryReadingSession();
+        return readMessage;
+    }
+
+    /**
+     * Writes the active profile block within a write session that stays open for the whole trial.
+     */
+    @Benchmark
+    public AppLayerMessage configurationWrite() throws Exception {
+        ActiveProfileBlock activeProfileBlock = new ActiveProfileBlock();
+        ActiveProfileBlock.ActiveProfile[] profiles = ActiveProfileBlock.ActiveProfile.values();
+        activeProfileBlock.setActiveProfile(profiles[profile++ % profiles.length]);
+        WriteConfigurationBlockMessage writeMessage = new WriteConfigurationBlockMessage();
+        writeMessage.setConfigurationBlock(activeProfileBlock);
+        return request(writeMessage);
+    }
+
+    private static class Response implements RequestCallback {
+
+        private AppLayerMessage message;
+        private Exception error;
+
+        @Override
+        public synchronized void onMessage(AppLayerMessage message) {
+            this.message = message;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void onError(Exception error) {
+            this.error = error;
+            notifyAll();
+        }
+
+        @Override
+        public boolean isAlive() {
+            return true;
+        }
+
+        private synchronized AppLayerMessage await() throws Exception {
+            long deadline = System.currentTimeMillis() + TIMEOUT;
+            while (message == null && error == null) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) throw new TimeoutException("No response");
+                wait(remaining);
+            }
+            if (error != null) throw error;
+            return message;
+        }
+    }
+}
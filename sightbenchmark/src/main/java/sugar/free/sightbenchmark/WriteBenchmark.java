@@ -0,0 +1,181 @@
+package sugar.free.sightbenchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+import sugar.free.sightparser.MapDataStorage;
+import sugar.free.sightparser.NonceJournal;
+import sugar.free.sightparser.TcpTransport;
+import sugar.free.sightparser.Transport;
+import sugar.free.sightparser.authlayer.DataMessage;
+import sugar.free.sightparser.authlayer.Nonce;
+import sugar.free.sightparser.crypto.CCMCipher;
+import sugar.free.sightparser.pipeline.ByteBuf;
+import sugar.free.sightparser.pipeline.Pipeline;
+
+/**
+ * Sends frames to a TCP socket on the loopback interface, either through the writer thread or inline as before it.
+ * Every transport write is one send syscall, the counters report them per message next to the throughput.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WriteBenchmark {
+
+    /**
+     * 110 was the fixed chunk size before it followed the transport.
+     */
+    @Param({"110", "1024"})
+    public int chunkSize;
+
+    /**
+     * Frames queued at once, e.g. a status poll sends several requests back to back.
+     */
+    @Param({"1", "8"})
+    public int batch;
+
+    /**
+     * Without the writer thread every frame is written and flushed by the sending thread on its own.
+     */
+    @Param({"true", "false"})
+    public boolean writerThread;
+
+    private ServerSocket serverSocket;
+    private CountingTransport transport;
+    private Pipeline pipeline;
+    private ByteBuf frame;
+    private File journal;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Syscalls {
+
+        public long messages;
+        public long writes;
+        public long flushes;
+
+        public double writesPerMessage() {
+            return messages == 0 ? 0 : (double) writes / messages;
+        }
+
+        public double flushesPerMessage() {
+            return messages == 0 ? 0 : (double) flushes / messages;
+        }
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        serverSocket = new ServerSocket(0);
+        Thread drain = new Thread(() -> {
+            try (Socket socket = serverSocket.accept(); InputStream inputStream = socket.getInputStream()) {
+                byte[] buffer = new byte[4096];
+                while (inputStream.read(buffer) != -1) ;
+            } catch (IOException ignored) {
+            }
+        }, "Drain");
+        drain.setDaemon(true);
+        drain.start();
+        transport = new CountingTransport(new TcpTransport("127.0.0.1", serverSocket.getLocalPort(), chunkSize));
+        transport.connect();
+        journal = File.createTempFile("benchmark", ".journal");
+        pipeline = new Pipeline(new MapDataStorage(), new NonceJournal(journal), status -> { });
+        pipeline.setTransport(transport);
+        if (writerThread) pipeline.startWriting();
+        DataMessage dataMessage = new DataMessage();
+        dataMessage.setData(new byte[100]);
+        Nonce nonce = new Nonce();
+        nonce.increment();
+        frame = dataMessage.serialize(nonce, 1, new CCMCipher(new byte[16]));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        pipeline.stopWriting();
+        transport.close();
+        serverSocket.close();
+        journal.delete();
+    }
+
+    @Benchmark
+    public void send(Syscalls syscalls) {
+        long writes = transport.writes;
+        long flushes = transport.flushes;
+        long target = transport.bytes + (long) batch * frame.size();
+        for (int i = 0; i < batch; i++) pipeline.send(frame);
+        while (transport.bytes < target) Thread.yield();
+        syscalls.messages += batch;
+        syscalls.writes += transport.writes - writes;
+        syscalls.flushes += transport.flushes - flushes;
+    }
+
+    private static class CountingTransport implements Transport {
+
+        private final Transport transport;
+        private volatile long bytes;
+        private volatile long writes;
+        private volatile long flushes;
+
+        private CountingTransport(Transport transport) {
+            this.transport = transport;
+        }
+
+        @Override
+        public void connect() throws IOException {
+            transport.connect();
+        }
+
+        @Override
+        public boolean isConnected() {
+            return transport.isConnected();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            return transport.read(buffer, offset, length);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            transport.write(bytes, offset, length);
+            writes++;
+            this.bytes += length;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            transport.flush();
+            flushes++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            transport.close();
+        }
+
+        @Override
+        public int getMtu() {
+            return transport.getMtu();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package sugar.free.sightparser;
+
+/**
+ * Small persistent key value store for the pairing keys and settings, backed by shared preferences on Android.
+ */
+public interface DataStorage {
+
+    String get(String key);
+
+    void set(String key, String value);
+
+    boolean contains(String key);
+
+    void remove(String key);
+}
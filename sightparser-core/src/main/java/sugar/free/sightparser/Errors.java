@@ -0,0 +1,59 @@
+package sugar.free.sightparser;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import sugar.free.sightparser.applayer.messages.AppLayerMessage;
+import sugar.free.sightparser.error.AppErrorCodeError;
+import sugar.free.sightparser.error.BolusDurationLimitExceededError;
+import sugar.free.sightparser.error.BolusAmountLimitExceededError;
+import sugar.free.sightparser.error.ErrorEvent;
+import sugar.free.sightparser.error.InvalidServicePasswordError;
+import sugar.free.sightparser.error.NotAvailableError;
+import sugar.free.sightparser.error.PumpAlreadyInThatStateError;
+import sugar.free.sightparser.error.UnknownAppErrorCodeError;
+
+public class Errors {
+
+    public static final ShortTable<ErrorFactory> ERRORS = new ShortTable<>();
+
+    /**
+     * Codes cached per message class, beyond that unusual codes get a new event every time.
+     */
+    private static final int MAX_CACHED_CODES = 16;
+
+    private static final Map<Class<? extends AppLayerMessage>, ShortTable<ErrorEvent>> EVENTS = new HashMap<>();
+
+    static {
+        ERRORS.put((short) 0x6A0C, NotAvailableError::new);
+        ERRORS.put((short) 0x8117, BolusAmountLimitExceededError::new);
+        ERRORS.put((short) 0x7E17, BolusDurationLimitExceededError::new);
+        ERRORS.put((short) 0xFC0C, PumpAlreadyInThatStateError::new);
+        ERRORS.put((short) 0x99F0, InvalidServicePasswordError::new);
+    }
+
+    /**
+     * @return the event for an error code the pump answered a message with, the same code keeps being reported while polling
+     */
+    public static ErrorEvent event(Class<? extends AppLayerMessage> clazz, short error) {
+        synchronized (EVENTS) {
+            ShortTable<ErrorEvent> events = EVENTS.get(clazz);
+            if (events == null) {
+                events = new ShortTable<>(4);
+                EVENTS.put(clazz, events);
+            }
+            ErrorEvent event = events.get(error);
+            if (event != null) return event;
+            ErrorFactory errorFactory = ERRORS.get(error);
+            event = ErrorEvent.stackless(ErrorEvent.Type.APP_ERROR_CODE, errorFactory != null
+                    ? errorFactory.create(clazz, error) : new UnknownAppErrorCodeError(clazz, error));
+            if (events.size() < MAX_CACHED_CODES) events.put(error, event);
+            return event;
+        }
+    }
+
+    public interface ErrorFactory {
+        AppErrorCodeError create(Class<? extends AppLayerMessage> clazz, short error);
+    }
+
+}
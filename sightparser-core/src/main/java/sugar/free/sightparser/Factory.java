@@ -0,0 +1,7 @@
+package sugar.free.sightparser;
+
+public interface Factory<T> {
+
+    T create();
+
+}
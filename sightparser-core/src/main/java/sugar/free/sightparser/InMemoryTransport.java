@@ -0,0 +1,136 @@
+package sugar.free.sightparser;
+
+import java.io.IOException;
+
+/**
+ * One end of an in-memory duplex channel, everything written here can be read from {@link #getPeer()} and vice versa.
+ * Closing either end closes both directions.
+ */
+public class InMemoryTransport implements Transport {
+
+    public static final int DEFAULT_MTU = 1024;
+    public static final int DEFAULT_CAPACITY = 65536;
+
+    private final Pipe incoming;
+    private final Pipe outgoing;
+    private final int mtu;
+    private final InMemoryTransport peer;
+    private volatile boolean connected;
+
+    public InMemoryTransport() {
+        this(DEFAULT_MTU, DEFAULT_CAPACITY);
+    }
+
+    public InMemoryTransport(int mtu, int capacity) {
+        this.incoming = new Pipe(capacity);
+        this.outgoing = new Pipe(capacity);
+        this.mtu = mtu;
+        this.peer = new InMemoryTransport(this);
+    }
+
+    private InMemoryTransport(InMemoryTransport peer) {
+        this.incoming = peer.outgoing;
+        this.outgoing = peer.incoming;
+        this.mtu = peer.mtu;
+        this.peer = peer;
+    }
+
+    public InMemoryTransport getPeer() {
+        return peer;
+    }
+
+    @Override
+    public void connect() throws IOException {
+        if (incoming.isClosed()) throw new IOException("Closed");
+        connected = true;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected && !incoming.isClosed();
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        return incoming.read(buffer, offset, length);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        outgoing.write(bytes, offset, length);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+        connected = false;
+        incoming.close();
+        outgoing.close();
+    }
+
+    @Override
+    public int getMtu() {
+        return mtu;
+    }
+
+    private static final class Pipe {
+
+        private final byte[] buffer;
+        private int head = 0;
+        private int size = 0;
+        private boolean closed = false;
+
+        private Pipe(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        synchronized boolean isClosed() {
+            return closed;
+        }
+
+        synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+
+        synchronized int read(byte[] target, int offset, int length) throws IOException {
+            try {
+                while (size == 0 && !closed) wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted");
+            }
+            if (size == 0) return -1;
+            int read = Math.min(length, size);
+            int firstPart = Math.min(read, buffer.length - head);
+            System.arraycopy(buffer, head, target, offset, firstPart);
+            System.arraycopy(buffer, 0, target, offset + firstPart, read - firstPart);
+            head = (head + read) % buffer.length;
+            size -= read;
+            notifyAll();
+            return read;
+        }
+
+        synchronized void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                try {
+                    while (size == buffer.length && !closed) wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted");
+                }
+                if (closed) throw new IOException("Closed");
+                int tail = (head + size) % buffer.length;
+                int written = Math.min(length, Math.min(buffer.length - size, buffer.length - tail));
+                System.arraycopy(bytes, offset, buffer, tail, written);
+                size += written;
+                offset += written;
+                length -= written;
+                notifyAll();
+            }
+        }
+    }
+}
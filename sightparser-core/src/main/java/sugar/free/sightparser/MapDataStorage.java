@@ -0,0 +1,32 @@
+package sugar.free.sightparser;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps everything in memory, for tools and tests that do not need to remember a pairing.
+ */
+public class MapDataStorage implements DataStorage {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    @Override
+    public synchronized String get(String key) {
+        return values.get(key);
+    }
+
+    @Override
+    public synchronized void set(String key, String value) {
+        values.put(key, value);
+    }
+
+    @Override
+    public synchronized boolean contains(String key) {
+        return values.containsKey(key);
+    }
+
+    @Override
+    public synchronized void remove(String key) {
+        values.remove(key);
+    }
+}
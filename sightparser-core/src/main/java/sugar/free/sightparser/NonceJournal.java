@@ -0,0 +1,140 @@
+package sugar.free.sightparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import lombok.Getter;
+import sugar.free.sightparser.authlayer.Nonce;
+import sugar.free.sightparser.crypto.Cryptograph;
+import sugar.free.sightparser.error.NonceJournalLostException;
+import sugar.free.sightparser.pipeline.ByteBuf;
+
+/**
+ * Persists the communication ID and nonces in a small binary file instead of the shared preferences.
+ * Outgoing nonces are reserved in blocks: the file only holds a high-water mark that lies ahead of the last nonce sent,
+ * so it is written once per {@link #RESERVATION_SIZE} messages. After a crash the pipeline resumes at that mark,
+ * which guarantees that no nonce is ever sent twice.
+ * Records are written alternately into two checksummed slots, so a torn write never destroys the previous state.
+ */
+public class NonceJournal {
+
+    public static final int RESERVATION_SIZE = 1024;
+
+    private static final int MAGIC = 0x534E4A31;
+    private static final int RECORD_SIZE = 4 + 8 + 8 + Nonce.LENGTH + 1 + Nonce.LENGTH + 2;
+
+    private final File file;
+    private long sequence = 0;
+
+    @Getter
+    private long commID = 0;
+    @Getter
+    private Nonce reservedNonceSent = new Nonce();
+    @Getter
+    private Nonce lastNonceReceived = null;
+
+    public NonceJournal(File file) {
+        this.file = file;
+    }
+
+    /**
+     * @return false if there is no journal yet
+     * @throws NonceJournalLostException if the journal exists but none of its records is valid
+     */
+    public synchronized boolean load() throws IOException {
+        if (!file.exists()) return false;
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            boolean found = false;
+            byte[] record = new byte[RECORD_SIZE];
+            for (int slot = 0; slot < 2; slot++) {
+                if (randomAccessFile.length() < (slot + 1) * RECORD_SIZE) break;
+                randomAccessFile.seek(slot * RECORD_SIZE);
+                randomAccessFile.readFully(record);
+                ByteBuf byteBuf = ByteBuf.wrap(record);
+                int crc = byteBuf.getUInt16LE(RECORD_SIZE - 2);
+                if (crc != Cryptograph.calculateCRC(byteBuf, 0, RECORD_SIZE - 2)) continue;
+                if (byteBuf.getUInt32LE(0) != (MAGIC & 0xFFFFFFFFL)) continue;
+                byteBuf.skip(4);
+                long recordSequence = byteBuf.getUInt32LE(0) | byteBuf.getUInt32LE(4) << 32;
+                byteBuf.skip(8);
+                if (found && recordSequence < sequence) continue;
+                found = true;
+                sequence = recordSequence;
+                commID = byteBuf.getUInt32LE(0) | byteBuf.getUInt32LE(4) << 32;
+                byteBuf.skip(8);
+                reservedNonceSent = Nonce.readLE(byteBuf);
+                boolean hasNonceReceived = byteBuf.readByte() != 0;
+                Nonce nonceReceived = Nonce.readLE(byteBuf);
+                lastNonceReceived = hasNonceReceived ? nonceReceived : null;
+            }
+            if (!found) throw new NonceJournalLostException("No valid record in " + file);
+            return true;
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Makes sure the given nonce is covered by the persisted reservation, extending it if necessary.
+     * Must be called before the nonce is sent.
+     */
+    public synchronized void reserve(Nonce nonceSent) throws IOException {
+        if (nonceSent.compareTo(reservedNonceSent) <= 0) return;
+        reservedNonceSent.set(nonceSent);
+        reservedNonceSent.add(RESERVATION_SIZE);
+        write();
+    }
+
+    public synchronized void setCommID(long commID) throws IOException {
+        if (this.commID == commID) return;
+        this.commID = commID;
+        write();
+    }
+
+    /**
+     * Only kept in memory until the next write, a stale value after a crash merely weakens the replay check.
+     */
+    public synchronized void setLastNonceReceived(Nonce nonceReceived) {
+        if (lastNonceReceived == null) lastNonceReceived = new Nonce(nonceReceived);
+        else lastNonceReceived.set(nonceReceived);
+    }
+
+    /**
+     * Shrinks the reservation to the last nonce actually sent, so a clean reconnect resumes without a gap.
+     */
+    public synchronized void flush(Nonce lastNonceSent) throws IOException {
+        reservedNonceSent.set(lastNonceSent);
+        write();
+    }
+
+    public synchronized void reset() {
+        sequence = 0;
+        commID = 0;
+        reservedNonceSent = new Nonce();
+        lastNonceReceived = null;
+        file.delete();
+    }
+
+    private void write() throws IOException {
+        sequence++;
+        ByteBuf byteBuf = new ByteBuf(RECORD_SIZE);
+        byteBuf.putUInt32LE(MAGIC);
+        byteBuf.putUInt32LE(sequence);
+        byteBuf.putUInt32LE(sequence >>> 32);
+        byteBuf.putUInt32LE(commID);
+        byteBuf.putUInt32LE(commID >>> 32);
+        reservedNonceSent.putLE(byteBuf);
+        byteBuf.putByte((byte) (lastNonceReceived != null ? 1 : 0));
+        (lastNonceReceived != null ? lastNonceReceived : new Nonce()).putLE(byteBuf);
+        byteBuf.putUInt16LE(Cryptograph.calculateCRC(byteBuf));
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rwd");
+        try {
+            randomAccessFile.seek((sequence % 2) * RECORD_SIZE);
+            randomAccessFile.write(byteBuf.getBytes());
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+}
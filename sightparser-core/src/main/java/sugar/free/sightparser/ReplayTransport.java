@@ -0,0 +1,138 @@
+package sugar.free.sightparser;
+
+import java.io.IOException;
+import java.util.List;
+
+import lombok.Getter;
+import sugar.free.sightparser.pipeline.TraceRecord;
+
+/**
+ * Plays the inbound side of a captured trace back to a pipeline, which decodes it like a live connection.
+ * By default an inbound record is only released once the pipeline has written as many bytes as were written
+ * before it during the capture, so responses do not overtake their requests. At original speed the gap to the
+ * previous record is kept as well, otherwise records follow each other as fast as they are read.
+ * Decoding encrypted frames needs the keys of the pairing the trace was captured with.
+ * The end of the trace is reported as end of stream.
+ */
+public class ReplayTransport implements Transport {
+
+    private final List<TraceRecord> records;
+    private final boolean originalSpeed;
+    private final boolean followOutbound;
+    private final int mtu;
+
+    private int index = 0;
+    private int position = 0;
+    private long outboundExpected = 0;
+    private long previousTime = 0;
+    private long lastEvent;
+    private boolean connected;
+    private boolean closed;
+
+    @Getter
+    private long bytesWritten = 0;
+    @Getter
+    private long bytesRead = 0;
+
+    public ReplayTransport(List<TraceRecord> records, boolean originalSpeed) {
+        this(records, originalSpeed, true, InMemoryTransport.DEFAULT_MTU);
+    }
+
+    /**
+     * @param followOutbound false to release inbound records regardless of what the pipeline writes
+     */
+    public ReplayTransport(List<TraceRecord> records, boolean originalSpeed, boolean followOutbound, int mtu) {
+        this.records = records;
+        this.originalSpeed = originalSpeed;
+        this.followOutbound = followOutbound;
+        this.mtu = mtu;
+    }
+
+    @Override
+    public synchronized void connect() throws IOException {
+        if (closed) throw new IOException("Closed");
+        connected = true;
+        lastEvent = System.nanoTime();
+    }
+
+    @Override
+    public synchronized boolean isConnected() {
+        return connected && !closed;
+    }
+
+    /**
+     * @return true once every inbound record has been read
+     */
+    public synchronized boolean isFinished() {
+        skipOutbound();
+        return index == records.size();
+    }
+
+    @Override
+    public synchronized int read(byte[] buffer, int offset, int length) throws IOException {
+        skipOutbound();
+        if (index == records.size() || closed) return -1;
+        TraceRecord record = records.get(index);
+        if (position == 0) {
+            try {
+                while (!closed && followOutbound && bytesWritten < outboundExpected) wait();
+                if (originalSpeed) {
+                    long due = lastEvent + (record.getTime() - previousTime) * 1000;
+                    for (long now = System.nanoTime(); !closed && now < due; now = System.nanoTime())
+                        wait(Math.max(1, (due - now) / 1000000));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted");
+            }
+            if (closed) return -1;
+            previousTime = record.getTime();
+            lastEvent = System.nanoTime();
+        }
+        byte[] bytes = record.getBytes();
+        int read = Math.min(length, bytes.length - position);
+        System.arraycopy(bytes, position, buffer, offset, read);
+        position += read;
+        bytesRead += read;
+        if (position == bytes.length) {
+            index++;
+            position = 0;
+        }
+        return read;
+    }
+
+    private void skipOutbound() {
+        while (position == 0 && index < records.size() && !records.get(index).isInbound()) {
+            TraceRecord record = records.get(index++);
+            outboundExpected += record.getBytes().length;
+            previousTime = record.getTime();
+        }
+    }
+
+    /**
+     * What the pipeline writes is only counted, the pump side of the trace is not checked against it.
+     */
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) throws IOException {
+        if (closed) throw new IOException("Closed");
+        bytesWritten += length;
+        lastEvent = System.nanoTime();
+        notifyAll();
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public synchronized void close() {
+        connected = false;
+        closed = true;
+        notifyAll();
+    }
+
+    @Override
+    public int getMtu() {
+        return mtu;
+    }
+}
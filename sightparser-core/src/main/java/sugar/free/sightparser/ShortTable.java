@@ -0,0 +1,75 @@
+package sugar.free.sightparser;
+
+/**
+ * Open addressed map from unboxed short keys to values, used for the decoding registries.
+ * Filled once in a static initializer and only read afterwards, unless the caller synchronizes.
+ */
+public final class ShortTable<V> {
+
+    private short[] keys;
+    private Object[] values;
+    private int size;
+
+    public ShortTable() {
+        this(16);
+    }
+
+    public ShortTable(int expectedSize) {
+        int capacity = 4;
+        while (capacity < expectedSize * 2) capacity <<= 1;
+        keys = new short[capacity];
+        values = new Object[capacity];
+    }
+
+    private static int hash(short key) {
+        int hash = (key & 0xFFFF) * 0x9E3779B1;
+        return hash ^ (hash >>> 16);
+    }
+
+    private int indexOf(short key) {
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+        while (values[index] != null && keys[index] != key) index = (index + 1) & mask;
+        return index;
+    }
+
+    public void put(short key, V value) {
+        if (value == null) throw new IllegalArgumentException("Null values are not supported");
+        int index = indexOf(key);
+        if (values[index] == null) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+                index = indexOf(key);
+            }
+            size++;
+        }
+        keys[index] = key;
+        values[index] = value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(short key) {
+        return (V) values[indexOf(key)];
+    }
+
+    public boolean containsKey(short key) {
+        return values[indexOf(key)] != null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void grow() {
+        short[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new short[oldKeys.length * 2];
+        values = new Object[oldValues.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] == null) continue;
+            int index = indexOf(oldKeys[i]);
+            keys[index] = oldKeys[i];
+            values[index] = oldValues[i];
+        }
+    }
+}
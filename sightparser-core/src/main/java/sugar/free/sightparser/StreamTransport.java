@@ -0,0 +1,47 @@
+package sugar.free.sightparser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Base for transports backed by a pair of streams, subclasses open them in {@link #connect()}.
+ */
+public abstract class StreamTransport implements Transport {
+
+    private final int mtu;
+    private InputStream inputStream;
+    private OutputStream outputStream;
+
+    protected StreamTransport(int mtu) {
+        this.mtu = mtu;
+    }
+
+    protected void setStreams(InputStream inputStream, OutputStream outputStream) {
+        this.inputStream = inputStream;
+        this.outputStream = outputStream;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (inputStream == null) throw new IOException("Not connected");
+        return inputStream.read(buffer, offset, length);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if (outputStream == null) throw new IOException("Not connected");
+        outputStream.write(bytes, offset, length);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (outputStream == null) throw new IOException("Not connected");
+        outputStream.flush();
+    }
+
+    @Override
+    public int getMtu() {
+        return mtu;
+    }
+}
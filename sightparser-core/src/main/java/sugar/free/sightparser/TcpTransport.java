@@ -0,0 +1,63 @@
+package sugar.free.sightparser;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * TCP connection, e.g. to a pump simulator or a remote pump bridge.
+ */
+public class TcpTransport extends StreamTransport {
+
+    public static final int DEFAULT_MTU = 1024;
+    public static final int CONNECT_TIMEOUT = 10000;
+
+    private final String host;
+    private final int port;
+    private volatile Socket socket;
+
+    public TcpTransport(String host, int port) {
+        this(host, port, DEFAULT_MTU);
+    }
+
+    public TcpTransport(String host, int port, int mtu) {
+        super(mtu);
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Wraps an already connected socket, e.g. one accepted by a server.
+     */
+    public TcpTransport(Socket socket, int mtu) throws IOException {
+        super(mtu);
+        this.host = socket.getInetAddress().getHostAddress();
+        this.port = socket.getPort();
+        this.socket = socket;
+        socket.setTcpNoDelay(true);
+        setStreams(socket.getInputStream(), socket.getOutputStream());
+    }
+
+    @Override
+    public void connect() throws IOException {
+        if (isConnected()) return;
+        Socket socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT);
+        this.socket = socket;
+        setStreams(socket.getInputStream(), socket.getOutputStream());
+    }
+
+    @Override
+    public boolean isConnected() {
+        Socket socket = this.socket;
+        return socket != null && socket.isConnected() && !socket.isClosed();
+    }
+
+    @Override
+    public void close() throws IOException {
+        Socket socket = this.socket;
+        this.socket = null;
+        if (socket != null) socket.close();
+    }
+}
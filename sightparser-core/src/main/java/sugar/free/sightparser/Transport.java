@@ -0,0 +1,34 @@
+package sugar.free.sightparser;
+
+import java.io.IOException;
+
+/**
+ * Byte channel the pipeline runs over, e.g. a Bluetooth RFCOMM socket, a TCP connection or an in-memory pipe.
+ */
+public interface Transport {
+
+    void connect() throws IOException;
+
+    boolean isConnected();
+
+    /**
+     * Blocks until at least one byte is available.
+     * @return the number of bytes read or -1 at the end of the stream
+     */
+    int read(byte[] buffer, int offset, int length) throws IOException;
+
+    void write(byte[] bytes, int offset, int length) throws IOException;
+
+    void flush() throws IOException;
+
+    /**
+     * Closes the channel, a read blocked on it fails or returns -1 afterwards.
+     */
+    void close() throws IOException;
+
+    /**
+     * @return the largest number of bytes that should be passed to a single write
+     */
+    int getMtu();
+
+}
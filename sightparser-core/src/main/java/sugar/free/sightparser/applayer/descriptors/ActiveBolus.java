@@ -25,8 +25,8 @@ public class ActiveBolus implements Serializable {
         ActiveBolus activeBolus = new ActiveBolus();
         activeBolus.bolusID = byteBuf.readUInt16LE();
         activeBolus.bolusType = ActiveBolusType.getBolusType(byteBuf.readShort());
-        byteBuf.shift(2);
-        byteBuf.shift(2);
+        byteBuf.skip(2);
+        byteBuf.skip(2);
         activeBolus.initialAmount = Helpers.roundDouble(((double) byteBuf.readUInt16LE()) / 100D);
         activeBolus.leftoverAmount = Helpers.roundDouble(((double) byteBuf.readUInt16LE()) / 100D);
         activeBolus.duration = byteBuf.readUInt16LE();
@@ -1,7 +1,7 @@
 package sugar.free.sightparser.applayer.descriptors;
 
 import lombok.Getter;
-import lombok.Setter;
+import sugar.free.sightparser.crypto.ServicePasswordHasher;
 
 public enum  Service {
 
@@ -18,9 +18,9 @@ public enum  Service {
     private byte serviceID;
     @Getter
     private short version;
-    @Setter
     @Getter
     private String servicePassword;
+    private ServicePasswordHasher servicePasswordHasher;
 
     Service(byte serviceID, short version, String servicePassword) {
         this.serviceID = serviceID;
@@ -28,4 +28,16 @@ public enum  Service {
         this.servicePassword = servicePassword;
     }
 
+    public synchronized void setServicePassword(String servicePassword) {
+        this.servicePassword = servicePassword;
+        this.servicePasswordHasher = null;
+    }
+
+    /**
+     * @return a hasher keyed with the current service password, kept until the password changes
+     */
+    public synchronized ServicePasswordHasher getServicePasswordHasher() {
+        if (servicePasswordHasher == null) servicePasswordHasher = new ServicePasswordHasher(servicePassword);
+        return servicePasswordHasher;
+    }
 }
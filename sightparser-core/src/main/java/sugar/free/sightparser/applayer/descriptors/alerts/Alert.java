@@ -0,0 +1,50 @@
+package sugar.free.sightparser.applayer.descriptors.alerts;
+
+import java.io.Serializable;
+
+import sugar.free.sightparser.Factory;
+import sugar.free.sightparser.ShortTable;
+import sugar.free.sightparser.pipeline.ByteBuf;
+
+public abstract class Alert implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final ShortTable<Factory<Alert>> ALERTS = new ShortTable<>();
+
+    static {
+        ALERTS.put((short) 0x1F00, Reminder1DeliverBolus::new);
+        ALERTS.put((short) 0xE300, Reminder2MissedBolus::new);
+        ALERTS.put((short) 0xFC00, Reminder3AlarmClock::new);
+        ALERTS.put((short) 0x2503, Reminder4ChangeInfusionSet::new);
+        ALERTS.put((short) 0x3A03, Reminder7TBRCompleted::new);
+
+        ALERTS.put((short) 0xC603, Warning31CartridgeLow::new);
+        ALERTS.put((short) 0xD903, Warning32BatteryLow::new);
+        ALERTS.put((short) 0x4A05, Warning33InvalidDateTime::new);
+        ALERTS.put((short) 0x5505, Warning34EndOfWarranty::new);
+        ALERTS.put((short) 0xA905, Warning36TBRCancelled::new);
+        ALERTS.put((short) 0xB605, Warning38BolusCancelled::new);
+        ALERTS.put((short) 0x6F06, Warning39LoantimeWarning::new);
+
+        ALERTS.put((short) 0x7006, Maintenance20CartridgeNotInserted::new);
+        ALERTS.put((short) 0x8C06, Maintenance21CartridgeEmpty::new);
+        ALERTS.put((short) 0x9306, Maintenance22BatteryEmpty::new);
+        ALERTS.put((short) 0x2618, Maintenance23AutomaticOff::new);
+        ALERTS.put((short) 0x3918, Maintenance24Occlusion::new);
+        ALERTS.put((short) 0xC518, Maintenance25LoantimeOver::new);
+        ALERTS.put((short) 0xDA18, Maintenance26CartridgeChangeNotCompleted::new);
+        ALERTS.put((short) 0x031B, Maintenance27DataDownloadFailed::new);
+        ALERTS.put((short) 0x1C1B, Maintenance28PauseModeTimeout::new);
+        ALERTS.put((short) 0xE01B, Maintenance29BatteryTypeNotSet::new);
+        ALERTS.put((short) 0xFF1B, Maintenance30CartridgeTypeNotSet::new);
+
+        ALERTS.put((short) 0x6C1D, Error6MechanicalError::new);
+        ALERTS.put((short) 0x731D, Error10RewindError::new);
+        ALERTS.put((short) 0x8F1D, Error13LanguageError::new);
+    }
+
+    public void parse(ByteBuf byteBuf) {
+    }
+
+}
@@ -14,7 +14,7 @@ public class Warning36TBRCancelled extends Alert {
 
     @Override
     public void parse(ByteBuf byteBuf) {
-        byteBuf.shift(2);
+        byteBuf.skip(2);
         amount = byteBuf.readUInt16LE();
         duration = byteBuf.readUInt16LE();
     }
@@ -19,7 +19,7 @@ public class Warning38BolusCancelled extends Alert {
     @Override
     public void parse(ByteBuf byteBuf) {
         bolusType = HistoryBolusType.getBolusType(byteBuf.readShort());
-        byteBuf.shift(2);
+        byteBuf.skip(2);
         programmedAmount = Helpers.roundDouble(((double) byteBuf.readUInt16LE()) / 100D);
         deliveredAmount = Helpers.roundDouble(((double) byteBuf.readUInt16LE()) / 100D);
     }
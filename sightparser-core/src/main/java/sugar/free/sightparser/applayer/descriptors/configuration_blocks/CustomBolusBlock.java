@@ -35,7 +35,7 @@ public abstract class CustomBolusBlock extends ConfigurationBlock {
         bolusType = HistoryBolusType.getBolusType(byteBuf.readShort());
         immediateAmount = Helpers.roundDouble(((double) byteBuf.readUInt16LE()) / 100D);
         extendedAmount = Helpers.roundDouble(((double) byteBuf.readUInt16LE()) / 100D);
-        byteBuf.shift(2);
+        byteBuf.skip(2);
         duration = byteBuf.readUInt16LE();
         configured = byteBuf.readBoolean();
     }
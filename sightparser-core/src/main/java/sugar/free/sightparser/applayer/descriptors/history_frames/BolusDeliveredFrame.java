@@ -23,14 +23,14 @@ public class BolusDeliveredFrame extends HistoryFrame {
     @Override
     public void parse(ByteBuf byteBuf) {
         bolusType = HistoryBolusType.getBolusType(byteBuf.readShort());
-        byteBuf.shift(1);
+        byteBuf.skip(1);
         startHour = BOCUtil.parseBOC(byteBuf.readByte());
         startMinute = BOCUtil.parseBOC(byteBuf.readByte());
         startSecond = BOCUtil.parseBOC(byteBuf.readByte());
         immediateAmount = Helpers.roundDouble(((double) byteBuf.readUInt16LE()) / 100D);
         extendedAmount = Helpers.roundDouble(((double) byteBuf.readUInt16LE()) / 100D);
         duration = byteBuf.readUInt16LE();
-        byteBuf.shift(2);
+        byteBuf.skip(2);
         bolusId = byteBuf.readUInt16LE();
     }
 }
@@ -22,7 +22,7 @@ public class BolusProgrammedFrame extends HistoryFrame {
         immediateAmount = Helpers.roundDouble(((double) byteBuf.readUInt16LE()) / 100D);
         extendedAmount =  Helpers.roundDouble(((double) byteBuf.readUInt16LE()) / 100D);
         duration = byteBuf.readUInt16LE();
-        byteBuf.shift(4);
+        byteBuf.skip(4);
         bolusId = byteBuf.readUInt16LE();
     }
 }
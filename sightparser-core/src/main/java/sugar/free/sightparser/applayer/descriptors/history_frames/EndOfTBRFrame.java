@@ -17,7 +17,7 @@ public class EndOfTBRFrame extends HistoryFrame {
 
     @Override
     public void parse(ByteBuf byteBuf) {
-        byteBuf.shift(1);
+        byteBuf.skip(1);
         startHour = BOCUtil.parseBOC(byteBuf.readByte());
         startMinute = BOCUtil.parseBOC(byteBuf.readByte());
         startSecond = BOCUtil.parseBOC(byteBuf.readByte());
@@ -1,11 +1,11 @@
 package sugar.free.sightparser.applayer.descriptors.history_frames;
 
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.Map;
 
 import lombok.Getter;
 import sugar.free.sightparser.BOCUtil;
+import sugar.free.sightparser.Factory;
+import sugar.free.sightparser.ShortTable;
 import sugar.free.sightparser.pipeline.ByteBuf;
 
 @Getter
@@ -13,22 +13,22 @@ public abstract class HistoryFrame implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
-    public static final Map<Short, Class<? extends HistoryFrame>> HISTORY_FRAMES = new HashMap<>();
+    public static final ShortTable<Factory<HistoryFrame>> HISTORY_FRAMES = new ShortTable<>();
 
     static {
-        HISTORY_FRAMES.put((short) 0x0303, EndOfTBRFrame.class);
-        HISTORY_FRAMES.put((short) 0x6A03, BolusProgrammedFrame.class);
-        HISTORY_FRAMES.put((short) 0x9503, BolusDeliveredFrame.class);
-        HISTORY_FRAMES.put((short) 0xC300, PumpStatusChangedFrame.class);
-        HISTORY_FRAMES.put((short) 0xA500, TimeChangedFrame.class);
-        HISTORY_FRAMES.put((short) 0xCF0C, CannulaFilledFrame.class);
-        HISTORY_FRAMES.put((short) 0xC003, DailyTotalFrame.class);
-        HISTORY_FRAMES.put((short) 0x6900, TubeFilledFrame.class);
-        HISTORY_FRAMES.put((short) 0x6600, CartridgeInsertedFrame.class);
-        HISTORY_FRAMES.put((short) 0x0F00, BatteryInsertedFrame.class);
-        HISTORY_FRAMES.put((short) 0xF300, OccurenceOfErrorFrame.class);
-        HISTORY_FRAMES.put((short) 0x0A05, OccurenceOfMaintenanceFrame.class);
-        HISTORY_FRAMES.put((short) 0x5005, OccurenceOfWarningFrame.class);
+        HISTORY_FRAMES.put((short) 0x0303, EndOfTBRFrame::new);
+        HISTORY_FRAMES.put((short) 0x6A03, BolusProgrammedFrame::new);
+        HISTORY_FRAMES.put((short) 0x9503, BolusDeliveredFrame::new);
+        HISTORY_FRAMES.put((short) 0xC300, PumpStatusChangedFrame::new);
+        HISTORY_FRAMES.put((short) 0xA500, TimeChangedFrame::new);
+        HISTORY_FRAMES.put((short) 0xCF0C, CannulaFilledFrame::new);
+        HISTORY_FRAMES.put((short) 0xC003, DailyTotalFrame::new);
+        HISTORY_FRAMES.put((short) 0x6900, TubeFilledFrame::new);
+        HISTORY_FRAMES.put((short) 0x6600, CartridgeInsertedFrame::new);
+        HISTORY_FRAMES.put((short) 0x0F00, BatteryInsertedFrame::new);
+        HISTORY_FRAMES.put((short) 0xF300, OccurenceOfErrorFrame::new);
+        HISTORY_FRAMES.put((short) 0x0A05, OccurenceOfMaintenanceFrame::new);
+        HISTORY_FRAMES.put((short) 0x5005, OccurenceOfWarningFrame::new);
     }
 
     private int eventYear;
@@ -43,7 +43,7 @@ public abstract class HistoryFrame implements Serializable {
         eventYear = BOCUtil.parseBOC(byteBuf.readByte()) * 100 + BOCUtil.parseBOC(byteBuf.readByte());
         eventMonth = BOCUtil.parseBOC(byteBuf.readByte());
         eventDay = BOCUtil.parseBOC(byteBuf.readByte());
-        byteBuf.shift(1);
+        byteBuf.skip(1);
         eventHour = BOCUtil.parseBOC(byteBuf.readByte());
         eventMinute = BOCUtil.parseBOC(byteBuf.readByte());
         eventSecond = BOCUtil.parseBOC(byteBuf.readByte());
@@ -21,7 +21,7 @@ public class TimeChangedFrame extends HistoryFrame {
         beforeYear = BOCUtil.parseBOC(byteBuf.readByte()) * 100 + BOCUtil.parseBOC(byteBuf.readByte());
         beforeMonth = BOCUtil.parseBOC(byteBuf.readByte());
         beforeDay = BOCUtil.parseBOC(byteBuf.readByte());
-        byteBuf.shift(1);
+        byteBuf.skip(1);
         beforeHour = BOCUtil.parseBOC(byteBuf.readByte());
         beforeMinute = BOCUtil.parseBOC(byteBuf.readByte());
         beforeSecond = BOCUtil.parseBOC(byteBuf.readByte());
@@ -1,19 +1,19 @@
 package sugar.free.sightparser.applayer.descriptors.status_param_blocks;
 
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.Map;
 
+import sugar.free.sightparser.Factory;
+import sugar.free.sightparser.ShortTable;
 import sugar.free.sightparser.pipeline.ByteBuf;
 
 public abstract class StatusBlock implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
-    public static final Map<Short, Class<? extends StatusBlock>> STATUSBLOCKS = new HashMap<>();
+    public static final ShortTable<Factory<StatusBlock>> STATUSBLOCKS = new ShortTable<>();
 
     static {
-        STATUSBLOCKS.put(SystemIdentificationBlock.ID, SystemIdentificationBlock.class);
+        STATUSBLOCKS.put(SystemIdentificationBlock.ID, SystemIdentificationBlock::new);
     }
 
     public abstract short getID();
@@ -1,13 +1,11 @@
 package sugar.free.sightparser.applayer.messages;
 
-import android.annotation.SuppressLint;
-
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.Map;
 
 import sugar.free.sightparser.Errors;
+import sugar.free.sightparser.Factory;
 import sugar.free.sightparser.Message;
+import sugar.free.sightparser.ShortTable;
 import sugar.free.sightparser.applayer.messages.configuration.CloseWriteSessionMessage;
 import sugar.free.sightparser.applayer.messages.configuration.OpenWriteSessionMessage;
 import sugar.free.sightparser.applayer.messages.configuration.ReadConfigurationBlockMessage;
@@ -45,75 +43,76 @@ import sugar.free.sightparser.applayer.messages.status.ReadDateTimeMessage;
 import sugar.free.sightparser.applayer.messages.status.WarrantyTimerMessage;
 import sugar.free.sightparser.applayer.messages.status_param.ReadStatusParamBlockMessage;
 import sugar.free.sightparser.crypto.Cryptograph;
-import sugar.free.sightparser.error.AppErrorCodeError;
+import sugar.free.sightparser.error.ErrorEvent;
 import sugar.free.sightparser.error.InvalidAppCRCError;
 import sugar.free.sightparser.error.InvalidAppVersionError;
-import sugar.free.sightparser.error.UnknownAppErrorCodeError;
 import sugar.free.sightparser.error.UnknownAppMessageError;
 import sugar.free.sightparser.error.UnknownServiceError;
+import sugar.free.sightparser.handling.MessagePriority;
 import sugar.free.sightparser.pipeline.ByteBuf;
+import sugar.free.sightparser.pipeline.DecodeResult;
 
 public abstract class AppLayerMessage extends Message implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
     private static final byte VERSION = 0x20;
-    @SuppressLint("UseSparseArrays")
-    private static Map<Byte, Map<Short, Class<? extends AppLayerMessage>>> MESSAGES = new HashMap<>();
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final ShortTable<Factory<AppLayerMessage>>[] MESSAGES = new ShortTable[256];
 
     static {
-        Map<Short, Class<? extends AppLayerMessage>> connectionMessages = new HashMap<>();
-        connectionMessages.put((short) 0xCDF3, BindMessage.class);
-        connectionMessages.put((short) 0x0BF0, ConnectMessage.class);
-        connectionMessages.put((short) 0x14F0, DisconnectMessage.class);
-        connectionMessages.put((short) 0xD2F3, ServiceChallengeMessage.class);
-        connectionMessages.put((short) 0xF7F0, ActivateServiceMessage.class);
-        connectionMessages.put((short) 0x31F3, DeactivateAllServicesMessage.class);
-        MESSAGES.put(Service.CONNECTION.getServiceID(), connectionMessages);
-
-        Map<Short, Class<? extends AppLayerMessage>> statusMessages = new HashMap<>();
-        statusMessages.put((short) 0xFC00, PumpStatusMessage.class);
-        statusMessages.put((short) 0xA905, CurrentBasalMessage.class);
-        statusMessages.put((short) 0x3A03, CartridgeAmountMessage.class);
-        statusMessages.put((short) 0x2503, BatteryAmountMessage.class);
-        statusMessages.put((short) 0xB605, CurrentTBRMessage.class);
-        statusMessages.put((short) 0x6F06, ActiveBolusesMessage.class);
-        statusMessages.put((short) 0xD82E, FirmwareVersionMessage.class);
-        statusMessages.put((short) 0x4A05, WarrantyTimerMessage.class);
-        statusMessages.put((short) 0xE300, ReadDateTimeMessage.class);
-        statusMessages.put((short) 0xD903, ActiveAlertMessage.class);
-        statusMessages.put((short) 0xC603, DailyTotalMessage.class);
-        MESSAGES.put(Service.STATUS.getServiceID(), statusMessages);
-
-        Map<Short, Class<? extends AppLayerMessage>> remoteControlMessages = new HashMap<>();
-        remoteControlMessages.put((short) 0x031B, BolusMessage.class);
-        remoteControlMessages.put((short) 0xE01B, CancelBolusMessage.class);
-        remoteControlMessages.put((short) 0x3918, CancelTBRMessage.class);
-        remoteControlMessages.put((short) 0xC518, SetTBRMessage.class);
-        remoteControlMessages.put((short) 0x53A4, ChangeTBRMessage.class);
-        remoteControlMessages.put((short) 0xDA18, AvailableBolusesMessage.class);
-        remoteControlMessages.put((short) 0x2618, SetPumpStatusMessage.class);
-        remoteControlMessages.put((short) 0x8C06, MuteAlertMessage.class);
-        remoteControlMessages.put((short) 0x9306, DismissAlertMessage.class);
-        MESSAGES.put(Service.REMOTE_CONTROL.getServiceID(), remoteControlMessages);
-
-        Map<Short, Class<? extends AppLayerMessage>> configurationMessages = new HashMap<>();
-        configurationMessages.put((short) 0x561E, ReadConfigurationBlockMessage.class);
-        configurationMessages.put((short) 0x491E, OpenWriteSessionMessage.class);
-        configurationMessages.put((short) 0xB51E, CloseWriteSessionMessage.class);
-        configurationMessages.put((short) 0xAA1E, WriteConfigurationBlockMessage.class);
-        configurationMessages.put((short) 0xFF1B, WriteDateTimeMessage.class);
-        MESSAGES.put(Service.CONFIGURATION.getServiceID(), configurationMessages);
-
-        Map<Short, Class<? extends AppLayerMessage>> historyMessages = new HashMap<>();
-        historyMessages.put((short) 0xE797, CloseHistoryReadingSessionMessage.class);
-        historyMessages.put((short) 0x5428, OpenHistoryReadingSessionMessage.class);
-        historyMessages.put((short) 0xA828, ReadHistoryFramesMessage.class);
-        MESSAGES.put(Service.HISTORY.getServiceID(), historyMessages);
-
-        Map<Short, Class<? extends AppLayerMessage>> statusParamMessages = new HashMap<>();
-        statusParamMessages.put((short) 0x561E, ReadStatusParamBlockMessage.class);
-        MESSAGES.put(Service.STATUS_PARAM.getServiceID(), statusParamMessages);
+        ShortTable<Factory<AppLayerMessage>> connectionMessages = new ShortTable<>();
+        connectionMessages.put((short) 0xCDF3, BindMessage::new);
+        connectionMessages.put((short) 0x0BF0, ConnectMessage::new);
+        connectionMessages.put((short) 0x14F0, DisconnectMessage::new);
+        connectionMessages.put((short) 0xD2F3, ServiceChallengeMessage::new);
+        connectionMessages.put((short) 0xF7F0, ActivateServiceMessage::new);
+        connectionMessages.put((short) 0x31F3, DeactivateAllServicesMessage::new);
+        MESSAGES[Service.CONNECTION.getServiceID() & 0xFF] = connectionMessages;
+
+        ShortTable<Factory<AppLayerMessage>> statusMessages = new ShortTable<>();
+        statusMessages.put((short) 0xFC00, PumpStatusMessage::new);
+        statusMessages.put((short) 0xA905, CurrentBasalMessage::new);
+        statusMessages.put((short) 0x3A03, CartridgeAmountMessage::new);
+        statusMessages.put((short) 0x2503, BatteryAmountMessage::new);
+        statusMessages.put((short) 0xB605, CurrentTBRMessage::new);
+        statusMessages.put((short) 0x6F06, ActiveBolusesMessage::new);
+        statusMessages.put((short) 0xD82E, FirmwareVersionMessage::new);
+        statusMessages.put((short) 0x4A05, WarrantyTimerMessage::new);
+        statusMessages.put((short) 0xE300, ReadDateTimeMessage::new);
+        statusMessages.put((short) 0xD903, ActiveAlertMessage::new);
+        statusMessages.put((short) 0xC603, DailyTotalMessage::new);
+        MESSAGES[Service.STATUS.getServiceID() & 0xFF] = statusMessages;
+
+        ShortTable<Factory<AppLayerMessage>> remoteControlMessages = new ShortTable<>();
+        remoteControlMessages.put((short) 0x031B, BolusMessage::new);
+        remoteControlMessages.put((short) 0xE01B, CancelBolusMessage::new);
+        remoteControlMessages.put((short) 0x3918, CancelTBRMessage::new);
+        remoteControlMessages.put((short) 0xC518, SetTBRMessage::new);
+        remoteControlMessages.put((short) 0x53A4, ChangeTBRMessage::new);
+        remoteControlMessages.put((short) 0xDA18, AvailableBolusesMessage::new);
+        remoteControlMessages.put((short) 0x2618, SetPumpStatusMessage::new);
+        remoteControlMessages.put((short) 0x8C06, MuteAlertMessage::new);
+        remoteControlMessages.put((short) 0x9306, DismissAlertMessage::new);
+        MESSAGES[Service.REMOTE_CONTROL.getServiceID() & 0xFF] = remoteControlMessages;
+
+        ShortTable<Factory<AppLayerMessage>> configurationMessages = new ShortTable<>();
+        configurationMessages.put((short) 0x561E, ReadConfigurationBlockMessage::new);
+        configurationMessages.put((short) 0x491E, OpenWriteSessionMessage::new);
+        configurationMessages.put((short) 0xB51E, CloseWriteSessionMessage::new);
+        configurationMessages.put((short) 0xAA1E, WriteConfigurationBlockMessage::new);
+        configurationMessages.put((short) 0xFF1B, WriteDateTimeMessage::new);
+        MESSAGES[Service.CONFIGURATION.getServiceID() & 0xFF] = configurationMessages;
+
+        ShortTable<Factory<AppLayerMessage>> historyMessages = new ShortTable<>();
+        historyMessages.put((short) 0xE797, CloseHistoryReadingSessionMessage::new);
+        historyMessages.put((short) 0x5428, OpenHistoryReadingSessionMessage::new);
+        historyMessages.put((short) 0xA828, ReadHistoryFramesMessage::new);
+        MESSAGES[Service.HISTORY.getServiceID() & 0xFF] = historyMessages;
+
+        ShortTable<Factory<AppLayerMessage>> statusParamMessages = new ShortTable<>();
+        statusParamMessages.put((short) 0x561E, ReadStatusParamBlockMessage::new);
+        MESSAGES[Service.STATUS_PARAM.getServiceID() & 0xFF] = statusParamMessages;
     }
 
     protected byte[] getData() throws Exception {
@@ -124,6 +123,26 @@ public abstract class AppLayerMessage extends Message implements Serializable {
 
     public abstract short getCommand();
 
+    /**
+     * Remote control messages are critical and history messages run in the background.
+     * Derived from the service only, clients must not be able to move their requests ahead of others.
+     */
+    public final MessagePriority getPriority() {
+        Service service = getService();
+        if (service == Service.REMOTE_CONTROL) return MessagePriority.CRITICAL;
+        if (service == Service.HISTORY) return MessagePriority.BACKGROUND;
+        return MessagePriority.INTERACTIVE;
+    }
+
+    /**
+     * Whether a request can share the response of an identical one that is already queued or in flight.
+     * True for the status reads, which take no parameters and do not change anything on the pump.
+     * Their response is passed to every client that asked for it, so it must not be modified.
+     */
+    public boolean isCoalescable() {
+        return getService() == Service.STATUS;
+    }
+
     protected void parse(ByteBuf byteBuf) throws Exception {
     }
 
@@ -146,34 +165,36 @@ public abstract class AppLayerMessage extends Message implements Serializable {
         return byteBuf.getBytes();
     }
 
-    public static AppLayerMessage deserialize(ByteBuf byteBuf) throws Exception {
+    /**
+     * Decodes a message into the result, protocol errors and error codes are reported through the result instead of being thrown.
+     * @return whether a message was decoded
+     */
+    public static boolean deserialize(ByteBuf byteBuf, DecodeResult<AppLayerMessage> result) throws Exception {
         byte version = byteBuf.readByte();
         byte service = byteBuf.readByte();
         short command = byteBuf.readShort();
         short error = byteBuf.readShort();
-        byte[] data = byteBuf.readBytes();
-        if (version != VERSION) throw new InvalidAppVersionError(version, VERSION);
-        if (!MESSAGES.containsKey(service)) throw new UnknownServiceError(service);
-        Class<? extends AppLayerMessage> clazz = MESSAGES.get(service).get(command);
-        if (clazz == null) throw new UnknownAppMessageError(service, command);
-        if (error != 0x0000 && error != 0xF0CC) {
-            Class<? extends AppErrorCodeError> errorClass = Errors.ERRORS.get(error);
-            if (errorClass != null) throw errorClass.getConstructor(Class.class, short.class).newInstance(clazz, error);
-            else throw new UnknownAppErrorCodeError(clazz, error);
-        }
-        AppLayerMessage message = clazz.newInstance();
-        ByteBuf dataBuf = new ByteBuf(data.length);
-        dataBuf.putBytes(data);
+        if (version != VERSION) return result.failure(new ErrorEvent(ErrorEvent.Type.INVALID_APP_VERSION,
+                () -> new InvalidAppVersionError(version, VERSION)));
+        ShortTable<Factory<AppLayerMessage>> serviceMessages = MESSAGES[service & 0xFF];
+        if (serviceMessages == null) return result.failure(new ErrorEvent(ErrorEvent.Type.UNKNOWN_SERVICE,
+                () -> new UnknownServiceError(service)));
+        Factory<AppLayerMessage> factory = serviceMessages.get(command);
+        if (factory == null) return result.failure(new ErrorEvent(ErrorEvent.Type.UNKNOWN_APP_MESSAGE,
+                () -> new UnknownAppMessageError(service, command)));
+        AppLayerMessage message = factory.create();
+        if (error != 0x0000 && error != 0xF0CC) return result.failure(Errors.event(message.getClass(), error));
+        ByteBuf dataBuf = byteBuf.readSlice(byteBuf.size());
         if (message.inCRC()) {
-            int crc = dataBuf.getUInt16LE(data.length - 2);
-            byte[] bytes = dataBuf.getBytes(data.length - 2);
-            int calculatedCRC = Cryptograph.calculateCRC(bytes);
-            if (crc != calculatedCRC) throw new InvalidAppCRCError(crc, calculatedCRC);
-            dataBuf = new ByteBuf(bytes.length);
-            dataBuf.putBytes(bytes);
+            int length = dataBuf.size() - 2;
+            int crc = dataBuf.getUInt16LE(length);
+            dataBuf = dataBuf.slice(0, length);
+            int calculatedCRC = Cryptograph.calculateCRC(dataBuf);
+            if (crc != calculatedCRC) return result.failure(new ErrorEvent(ErrorEvent.Type.INVALID_APP_CRC,
+                    () -> new InvalidAppCRCError(crc, calculatedCRC)));
         }
         message.parse(dataBuf);
-        return message;
+        return result.success(message);
     }
 
 }
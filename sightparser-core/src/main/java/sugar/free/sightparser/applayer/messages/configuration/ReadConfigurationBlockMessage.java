@@ -2,6 +2,7 @@ package sugar.free.sightparser.applayer.messages.configuration;
 
 import lombok.Getter;
 import lombok.Setter;
+import sugar.free.sightparser.Factory;
 import sugar.free.sightparser.applayer.messages.AppLayerMessage;
 import sugar.free.sightparser.applayer.descriptors.configuration_blocks.ConfigurationBlock;
 import sugar.free.sightparser.applayer.descriptors.Service;
@@ -41,14 +42,10 @@ public class ReadConfigurationBlockMessage extends AppLayerMessage {
     protected void parse(ByteBuf byteBuf) throws Exception {
         configurationBlockID = byteBuf.readShort();
         restriction = RestrictionLevel.getByValue(byteBuf.readShort());
-        try {
-            configurationBlock = ConfigurationBlock.CONFIGURATIONBLOCKS.get(configurationBlockID).newInstance();
-            configurationBlock.parse(byteBuf);
-        } catch (InstantiationException e) {
-            e.printStackTrace();
-        } catch (IllegalAccessException e) {
-            e.printStackTrace();
-        }
+        Factory<ConfigurationBlock> factory = ConfigurationBlock.CONFIGURATIONBLOCKS.get(configurationBlockID);
+        if (factory == null) return;
+        configurationBlock = factory.create();
+        configurationBlock.parse(byteBuf);
     }
 
     @Override
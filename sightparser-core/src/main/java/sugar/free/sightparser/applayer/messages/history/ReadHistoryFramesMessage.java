@@ -1,16 +1,16 @@
 package sugar.free.sightparser.applayer.messages.history;
 
-import android.util.Log;
-
 import org.spongycastle.util.encoders.Hex;
 
 import java.util.ArrayList;
 import java.util.List;
 
 import lombok.Getter;
+import sugar.free.sightparser.Factory;
 import sugar.free.sightparser.applayer.messages.AppLayerMessage;
 import sugar.free.sightparser.applayer.descriptors.Service;
 import sugar.free.sightparser.applayer.descriptors.history_frames.HistoryFrame;
+import sugar.free.sightparser.logging.Log;
 import sugar.free.sightparser.pipeline.ByteBuf;
 
 public class ReadHistoryFramesMessage extends AppLayerMessage {
@@ -40,20 +40,19 @@ public class ReadHistoryFramesMessage extends AppLayerMessage {
     @Override
     protected void parse(ByteBuf byteBuf) throws Exception {
         historyFrames = new ArrayList<>();
-        byteBuf.shift(2);
+        byteBuf.skip(2);
         int frameCount = byteBuf.readUInt16LE();
         for (int i = 0; i < frameCount; i++) {
             int length = byteBuf.readUInt16LE();
             short eventType = byteBuf.readShort();
-            ByteBuf eventBuf = new ByteBuf(length - 2);
-            eventBuf.putBytes(byteBuf.readBytes(length - 2));
+            ByteBuf eventBuf = byteBuf.readSlice(length - 2);
 
             long eventNumber = eventBuf.getUInt32LE(8);
             if (eventNumber > latestEventNumber) latestEventNumber = eventNumber;
 
-            Class<? extends HistoryFrame> clazz = HistoryFrame.HISTORY_FRAMES.get(eventType);
-            if (clazz != null) {
-                HistoryFrame historyFrame = clazz.newInstance();
+            Factory<HistoryFrame> factory = HistoryFrame.HISTORY_FRAMES.get(eventType);
+            if (factory != null) {
+                HistoryFrame historyFrame = factory.create();
                 historyFrame.parseHeader(eventBuf);
                 historyFrame.parse(eventBuf);
                 historyFrames.add(historyFrame);
@@ -1,6 +1,7 @@
 package sugar.free.sightparser.applayer.messages.status;
 
 import lombok.Getter;
+import sugar.free.sightparser.Factory;
 import sugar.free.sightparser.applayer.messages.AppLayerMessage;
 import sugar.free.sightparser.applayer.descriptors.alerts.Alert;
 import sugar.free.sightparser.applayer.descriptors.AlertStatus;
@@ -32,10 +33,10 @@ public class ActiveAlertMessage extends AppLayerMessage {
     protected void parse(ByteBuf byteBuf) throws Exception {
         alertID = byteBuf.readUInt16LE();
         alertCategory = AlertCategory.getAlertCategory(byteBuf.readShort());
-        Class<? extends Alert> alertClass = Alert.ALERTS.get(byteBuf.readShort());
+        Factory<Alert> factory = Alert.ALERTS.get(byteBuf.readShort());
         alertStatus = AlertStatus.getAlertStaus(byteBuf.readShort());
-        if (alertClass == null) return;
-        alert = alertClass.newInstance();
+        if (factory == null) return;
+        alert = factory.create();
         alert.parse(byteBuf);
     }
 
@@ -32,7 +32,7 @@ public class CurrentBasalMessage extends AppLayerMessage {
 
     @Override
     protected void parse(ByteBuf byteBuf) throws Exception {
-        byteBuf.shift(2);
+        byteBuf.skip(2);
         currentBasalName = byteBuf.readUTF16LE(62);
         currentBasalAmount = Helpers.roundDouble(((double) byteBuf.readUInt16LE()) / 100D);
     }
@@ -2,6 +2,7 @@ package sugar.free.sightparser.applayer.messages.status_param;
 
 import lombok.Getter;
 import lombok.Setter;
+import sugar.free.sightparser.Factory;
 import sugar.free.sightparser.applayer.messages.AppLayerMessage;
 import sugar.free.sightparser.applayer.descriptors.Service;
 import sugar.free.sightparser.applayer.descriptors.RestrictionLevel;
@@ -41,14 +42,10 @@ public class ReadStatusParamBlockMessage extends AppLayerMessage {
     protected void parse(ByteBuf byteBuf) throws Exception {
         statusBlockId = byteBuf.readShort();
         restriction = RestrictionLevel.getByValue(byteBuf.readShort());
-        try {
-            statusBlock = StatusBlock.STATUSBLOCKS.get(statusBlockId).newInstance();
-            statusBlock.parse(byteBuf);
-        } catch (InstantiationException e) {
-            e.printStackTrace();
-        } catch (IllegalAccessException e) {
-            e.printStackTrace();
-        }
+        Factory<StatusBlock> factory = StatusBlock.STATUSBLOCKS.get(statusBlockId);
+        if (factory == null) return;
+        statusBlock = factory.create();
+        statusBlock.parse(byteBuf);
     }
 
     @Override
@@ -0,0 +1,116 @@
+package sugar.free.sightparser.authlayer;
+
+import org.spongycastle.util.encoders.Hex;
+
+import lombok.Getter;
+import sugar.free.sightparser.Factory;
+import sugar.free.sightparser.Message;
+import sugar.free.sightparser.crypto.CCMCipher;
+import sugar.free.sightparser.crypto.Cryptograph;
+import sugar.free.sightparser.error.ErrorEvent;
+import sugar.free.sightparser.error.InvalidAuthVersionError;
+import sugar.free.sightparser.error.UnknownAuthMessageError;
+import sugar.free.sightparser.pipeline.ByteBuf;
+import sugar.free.sightparser.pipeline.DecodeResult;
+
+public abstract class AuthLayerMessage extends Message {
+
+    static final byte[] MAGIC_HEADER = Hex.decode("88CCEEFF");
+    static final byte VERSION = 0x20;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final Factory<AuthLayerMessage>[] MESSAGES = new Factory[256];
+
+    static {
+        MESSAGES[0x09] = ConnectionRequest::new;
+        MESSAGES[0x0A] = ConnectionResponse::new;
+        MESSAGES[0x0C] = KeyRequest::new;
+        MESSAGES[0x11] = KeyResponse::new;
+        MESSAGES[0x12] = VerifyDisplayRequest::new;
+        MESSAGES[0x14] = VerifyDisplayResponse::new;
+        MESSAGES[0x0E] = VerifyConfirmRequest::new;
+        MESSAGES[0x1E] = VerifyConfirmResponse::new;
+        MESSAGES[0x17] = SynRequest::new;
+        MESSAGES[0x18] = SynAckResponse::new;
+        MESSAGES[0x06] = ErrorMessage::new;
+        MESSAGES[0x03] = DataMessage::new;
+    }
+
+    @Getter
+    private Nonce nonce;
+    @Getter
+    private long commID;
+
+    protected abstract byte getCommand();
+
+    protected byte[] getData() {
+        return new byte[0];
+    }
+
+    public ByteBuf serialize(Nonce nonce, long commID, CCMCipher cipher) {
+        byte[] data = getData();
+        int dataLength = data.length;
+        int length = (short) (29 + dataLength);
+        ByteBuf byteBuf = new ByteBuf(length + 8);
+        byteBuf.putBytes(MAGIC_HEADER);
+        byteBuf.putUInt16LE(length);
+        byteBuf.putUInt16LE(~length);
+        byteBuf.putByte(VERSION);
+        byteBuf.putByte(getCommand());
+        byteBuf.putUInt16LE(dataLength);
+        byteBuf.putUInt32LE(commID);
+        nonce.putLE(byteBuf);
+        byteBuf.putBytes(data);
+        byteBuf.putBytes((byte) 0x00, 8);
+        cipher.seal(byteBuf.array(), 8, 21, 16, dataLength);
+        return byteBuf;
+    }
+
+    /**
+     * Decodes one frame into the result, errors are reported through the result instead of being thrown.
+     * @return whether a message was decoded
+     */
+    public static boolean deserialize(ByteBuf data, Nonce lastNonce, CCMCipher cipher, DecodeResult<AuthLayerMessage> result) {
+        data.skip(4); //Preamble
+        int packetLength = data.readUInt16LE();
+        data.skip(2); //Packet length XOR
+        ByteBuf packet = data.slice(0, packetLength);
+        byte version = data.readByte();
+        byte command = data.readByte();
+        Factory<AuthLayerMessage> factory = MESSAGES[command & 0xFF];
+        if (factory == null) return result.failure(new ErrorEvent(ErrorEvent.Type.UNKNOWN_AUTH_MESSAGE,
+                () -> new UnknownAuthMessageError(command)));
+        AuthLayerMessage message = factory.create();
+        int dataLength = data.readUInt16LE();
+        long commID = data.readUInt32LE();
+        Nonce nonce = Nonce.readLE(data);
+        ByteBuf payload = data.readSlice(dataLength);
+        data.skip(8); //Trailer
+        boolean crcPacket = message instanceof CRCAuthLayerMessage;
+        if (version  != VERSION) {
+            return result.failure(new ErrorEvent(ErrorEvent.Type.INVALID_AUTH_VERSION,
+                    () -> new InvalidAuthVersionError(version, VERSION)));
+        } else if (lastNonce != null && lastNonce.isZero() && nonce.compareTo(lastNonce) <= 0) {
+            return result.failure(ErrorEvent.INVALID_NONCE);
+        } else {
+            if (crcPacket) {
+                int crc = payload.getUInt16LE(dataLength - 2);
+                int calculatedCRC = Cryptograph.calculateCRC(packet, 0, packetLength - 10);
+                if (crc != calculatedCRC) return result.failure(ErrorEvent.INVALID_AUTH_CRC);
+                payload = payload.slice(0, dataLength - 2);
+            } else {
+                byte[] frame = packet.getBytes();
+                if (!cipher.open(frame, 0, 21, 8, dataLength)) return result.failure(ErrorEvent.INVALID_TRAILER);
+                payload = ByteBuf.wrap(frame, 21, dataLength);
+            }
+            message.nonce = nonce;
+            message.commID = commID;
+            message.parse(payload);
+            return result.success(message);
+        }
+    }
+
+    protected void parse(ByteBuf byteBuf) {
+
+    }
+}
@@ -1,14 +1,13 @@
 package sugar.free.sightparser.authlayer;
 
-import java.math.BigInteger;
-
+import sugar.free.sightparser.crypto.CCMCipher;
 import sugar.free.sightparser.crypto.Cryptograph;
 import sugar.free.sightparser.pipeline.ByteBuf;
 
 public abstract class CRCAuthLayerMessage extends AuthLayerMessage {
 
     @Override
-    public ByteBuf serialize(BigInteger nonce, long commID, byte[] key) {
+    public ByteBuf serialize(Nonce nonce, long commID, CCMCipher cipher) {
         byte[] data = getData();
         short dataLength = (short) (data.length + 2);
         short length = (short) (29 + dataLength);
@@ -20,9 +19,9 @@ public abstract class CRCAuthLayerMessage extends AuthLayerMessage {
         byteBuf.putByte(getCommand());
         byteBuf.putUInt16LE(dataLength);
         byteBuf.putUInt32LE(commID);
-        byteBuf.putBytes(processNonce(nonce));
+        nonce.putLE(byteBuf);
         byteBuf.putBytes(data);
-        byteBuf.putUInt16LE((short) Cryptograph.calculateCRC(byteBuf.getBytes(8, length - 10)));
+        byteBuf.putUInt16LE((short) Cryptograph.calculateCRC(byteBuf, 8, length - 10));
         byteBuf.putBytes((byte) 0x00, 8);
         return byteBuf;
     }
@@ -6,17 +6,27 @@ import sugar.free.sightparser.pipeline.ByteBuf;
 
 public final class DataMessage extends AuthLayerMessage {
 
-    @Getter
     @Setter
     private byte[] data;
+    /**
+     * Read-only view over the decrypted payload of an inbound message.
+     */
+    @Getter
+    private ByteBuf dataBuf;
 
     @Override
     protected byte getCommand() {
         return 0x03;
     }
 
+    @Override
+    public byte[] getData() {
+        if (data == null && dataBuf != null) data = dataBuf.getBytes();
+        return data;
+    }
+
     @Override
     protected void parse(ByteBuf byteBuf) {
-        data = byteBuf.getBytes();
+        dataBuf = byteBuf;
     }
 }
@@ -18,7 +18,7 @@ public final class KeyResponse extends CRCAuthLayerMessage {
     @Override
     protected void parse(ByteBuf byteBuf) {
         randomData = byteBuf.readBytes(28);
-        byteBuf.shift(4); //Date
+        byteBuf.skip(4); //Date
         preMasterSecret = byteBuf.getBytes(256);
     }
 }
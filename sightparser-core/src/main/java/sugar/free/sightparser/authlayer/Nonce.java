@@ -0,0 +1,105 @@
+package sugar.free.sightparser.authlayer;
+
+import org.spongycastle.util.encoders.Hex;
+
+import sugar.free.sightparser.pipeline.ByteBuf;
+
+/**
+ * Mutable 104 bit message counter, stored as the low 64 and the high 40 bits.
+ */
+public final class Nonce implements Comparable<Nonce> {
+
+    public static final int LENGTH = 13;
+
+    private static final long HIGH_MASK = 0xFFFFFFFFFFL;
+
+    private long low;
+    private long high;
+
+    public Nonce() {
+    }
+
+    public Nonce(Nonce nonce) {
+        set(nonce);
+    }
+
+    public void set(Nonce nonce) {
+        low = nonce.low;
+        high = nonce.high;
+    }
+
+    public void increment() {
+        if (++low == 0) high = (high + 1) & HIGH_MASK;
+    }
+
+    public void add(long amount) {
+        long previous = low;
+        low += amount;
+        if ((low ^ Long.MIN_VALUE) < (previous ^ Long.MIN_VALUE)) high = (high + 1) & HIGH_MASK;
+    }
+
+    public boolean isZero() {
+        return low == 0 && high == 0;
+    }
+
+    @Override
+    public int compareTo(Nonce nonce) {
+        if (high != nonce.high) return high < nonce.high ? -1 : 1;
+        if (low == nonce.low) return 0;
+        return (low ^ Long.MIN_VALUE) < (nonce.low ^ Long.MIN_VALUE) ? -1 : 1;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof Nonce)) return false;
+        Nonce nonce = (Nonce) object;
+        return low == nonce.low && high == nonce.high;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (low ^ (low >>> 32) ^ high);
+    }
+
+    @Override
+    public String toString() {
+        return Hex.toHexString(getBytesBE());
+    }
+
+    public void putLE(ByteBuf byteBuf) {
+        for (int i = 0; i < 8; i++) byteBuf.putByte((byte) (low >>> (i * 8)));
+        for (int i = 0; i < 5; i++) byteBuf.putByte((byte) (high >>> (i * 8)));
+    }
+
+    public static Nonce readLE(ByteBuf byteBuf) {
+        Nonce nonce = new Nonce();
+        for (int i = 0; i < 8; i++) nonce.low |= (byteBuf.readByte() & 0xFFL) << (i * 8);
+        for (int i = 0; i < 5; i++) nonce.high |= (byteBuf.readByte() & 0xFFL) << (i * 8);
+        return nonce;
+    }
+
+    public byte[] getBytesLE() {
+        ByteBuf byteBuf = new ByteBuf(LENGTH);
+        putLE(byteBuf);
+        return byteBuf.getBytes();
+    }
+
+    public byte[] getBytesBE() {
+        ByteBuf byteBuf = new ByteBuf(LENGTH);
+        putLE(byteBuf);
+        return byteBuf.getBytesLE();
+    }
+
+    /**
+     * Accepts big endian values of any length up to 104 bits, including the sign byte written by {@link java.math.BigInteger#toByteArray()}.
+     */
+    public static Nonce fromBytesBE(byte[] bytes) {
+        Nonce nonce = new Nonce();
+        for (int i = 0; i < Math.min(bytes.length, LENGTH); i++) {
+            long b = bytes[bytes.length - 1 - i] & 0xFFL;
+            if (i < 8) nonce.low |= b << (i * 8);
+            else nonce.high |= b << ((i - 8) * 8);
+        }
+        return nonce;
+    }
+}
@@ -0,0 +1,129 @@
+package sugar.free.sightparser.crypto;
+
+import org.spongycastle.crypto.engines.TwofishEngine;
+import org.spongycastle.crypto.params.KeyParameter;
+
+/**
+ * Twofish CCM primitives bound to a single key.
+ * The key schedule runs once in the constructor and the engine is reused for every message.
+ */
+public class CCMCipher {
+
+    private static final int BLOCK_SIZE = 16;
+
+    private final TwofishEngine engine = new TwofishEngine();
+    private final byte[] block = new byte[BLOCK_SIZE];
+    private final byte[] keyStream = new byte[BLOCK_SIZE];
+    private final byte[] mac = new byte[BLOCK_SIZE];
+
+    public CCMCipher(byte[] key) {
+        engine.init(true, new KeyParameter(key));
+    }
+
+    private void produceCCMPrimitive(byte headerByte, byte[] nonce, int number) {
+        produceCCMPrimitive(headerByte, nonce, 0, number);
+    }
+
+    private void produceCCMPrimitive(byte headerByte, byte[] nonce, int nonceOffset, int number) {
+        block[0] = headerByte;
+        System.arraycopy(nonce, nonceOffset, block, 1, 13);
+        block[14] = (byte) (number >> 8);
+        block[15] = (byte) number;
+    }
+
+    /**
+     * Encrypts or decrypts the given array in place.
+     */
+    public synchronized void processDataCTR(byte[] data, byte[] nonce) {
+        for (int offset = 0, i = 1; offset < data.length; offset += BLOCK_SIZE, i++) {
+            produceCCMPrimitive((byte) 0x01, nonce, i);
+            engine.processBlock(block, 0, keyStream, 0);
+            int end = Math.min(offset + BLOCK_SIZE, data.length);
+            for (int j = offset; j < end; j++) data[j] ^= keyStream[j - offset];
+        }
+    }
+
+    public synchronized byte[] produceCCMTag(byte[] nonce, byte[] payload, byte[] header) {
+        byte[] mac = new byte[BLOCK_SIZE];
+        produceCCMPrimitive((byte) 0x59, nonce, payload.length);
+        engine.processBlock(block, 0, mac, 0);
+        mac[0] ^= (byte) (header.length >> 8);
+        mac[1] ^= (byte) header.length;
+        int position = absorb(mac, header, 0, header.length, 2);
+        if (position != 0) engine.processBlock(mac, 0, mac, 0);
+        position = absorb(mac, payload, 0, payload.length, 0);
+        if (position != 0) engine.processBlock(mac, 0, mac, 0);
+        produceCCMPrimitive((byte) 0x01, nonce, 0);
+        engine.processBlock(block, 0, keyStream, 0);
+        byte[] tag = new byte[8];
+        for (int i = 0; i < tag.length; i++) tag[i] = (byte) (mac[i] ^ keyStream[i]);
+        return tag;
+    }
+
+    /**
+     * Encrypts the payload in place and writes the 8 byte tag right behind it.
+     * The payload is expected to follow the header directly; CTR and CBC-MAC are computed in a single pass.
+     */
+    public synchronized void seal(byte[] frame, int headerOffset, int headerLength, int nonceOffset, int payloadLength) {
+        int tagOffset = process(frame, headerOffset, headerLength, nonceOffset, payloadLength, true);
+        for (int i = 0; i < 8; i++) frame[tagOffset + i] = (byte) (mac[i] ^ keyStream[i]);
+    }
+
+    /**
+     * Decrypts the payload in place and verifies the tag behind it.
+     * @return whether the tag matches
+     */
+    public synchronized boolean open(byte[] frame, int headerOffset, int headerLength, int nonceOffset, int payloadLength) {
+        int tagOffset = process(frame, headerOffset, headerLength, nonceOffset, payloadLength, false);
+        int difference = 0;
+        for (int i = 0; i < 8; i++) difference |= frame[tagOffset + i] ^ mac[i] ^ keyStream[i];
+        return difference == 0;
+    }
+
+    /**
+     * Runs CTR and CBC-MAC over the payload in one pass.
+     * Leaves the unmasked MAC in {@link #mac} and the tag mask in {@link #keyStream}.
+     * @return the offset of the tag
+     */
+    private int process(byte[] frame, int headerOffset, int headerLength, int nonceOffset, int payloadLength, boolean encrypt) {
+        int payloadOffset = headerOffset + headerLength;
+        produceCCMPrimitive((byte) 0x59, frame, nonceOffset, payloadLength);
+        engine.processBlock(block, 0, mac, 0);
+        mac[0] ^= (byte) (headerLength >> 8);
+        mac[1] ^= (byte) headerLength;
+        if (absorb(mac, frame, headerOffset, headerLength, 2) != 0) engine.processBlock(mac, 0, mac, 0);
+        for (int offset = 0, i = 1; offset < payloadLength; offset += BLOCK_SIZE, i++) {
+            produceCCMPrimitive((byte) 0x01, frame, nonceOffset, i);
+            engine.processBlock(block, 0, keyStream, 0);
+            int length = Math.min(BLOCK_SIZE, payloadLength - offset);
+            for (int j = 0, k = payloadOffset + offset; j < length; j++, k++) {
+                if (encrypt) {
+                    mac[j] ^= frame[k];
+                    frame[k] ^= keyStream[j];
+                } else {
+                    frame[k] ^= keyStream[j];
+                    mac[j] ^= frame[k];
+                }
+            }
+            engine.processBlock(mac, 0, mac, 0);
+        }
+        produceCCMPrimitive((byte) 0x01, frame, nonceOffset, 0);
+        engine.processBlock(block, 0, keyStream, 0);
+        return payloadOffset + payloadLength;
+    }
+
+    /**
+     * Feeds bytes into the running CBC-MAC, encrypting every completed block.
+     * @return the position inside the current block
+     */
+    private int absorb(byte[] mac, byte[] data, int offset, int length, int position) {
+        for (int i = offset; i < offset + length; i++) {
+            mac[position++] ^= data[i];
+            if (position == BLOCK_SIZE) {
+                engine.processBlock(mac, 0, mac, 0);
+                position = 0;
+            }
+        }
+        return position;
+    }
+}
@@ -41,4 +41,41 @@ public class CRC {
         0xf78f, 0xe606, 0xd49d, 0xc514, 0xb1ab, 0xa022, 0x92b9, 0x8330,
         0x7bc7, 0x6a4e, 0x58d5, 0x495c, 0x3de3, 0x2c6a, 0x1ef1, 0x0f78
     };
-}
\ No newline at end of file
+
+    public static final int INITIAL = 0xffff;
+
+    /**
+     * Slicing-by-8 tables, {@code slices[k][i]} is the CRC contribution of byte {@code i} followed by {@code k} zero bytes.
+     */
+    private static final int[][] slices = new int[8][256];
+
+    static {
+        slices[0] = table;
+        for (int k = 1; k < 8; k++) {
+            for (int i = 0; i < 256; i++) {
+                int previous = slices[k - 1][i];
+                slices[k][i] = (previous >>> 8) ^ table[previous & 0xff];
+            }
+        }
+    }
+
+    /**
+     * Continues a CRC over the given range, eight bytes per step.
+     * Start with {@link #INITIAL}; feeding a message in several ranges yields the same result as feeding it at once.
+     */
+    public static int update(int crc, byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        int[] t0 = slices[0], t1 = slices[1], t2 = slices[2], t3 = slices[3],
+                t4 = slices[4], t5 = slices[5], t6 = slices[6], t7 = slices[7];
+        while (end - offset >= 8) {
+            crc ^= (bytes[offset] & 0xff) | (bytes[offset + 1] & 0xff) << 8;
+            crc = t7[crc & 0xff] ^ t6[crc >>> 8]
+                    ^ t5[bytes[offset + 2] & 0xff] ^ t4[bytes[offset + 3] & 0xff]
+                    ^ t3[bytes[offset + 4] & 0xff] ^ t2[bytes[offset + 5] & 0xff]
+                    ^ t1[bytes[offset + 6] & 0xff] ^ t0[bytes[offset + 7] & 0xff];
+            offset += 8;
+        }
+        while (offset < end) crc = (crc >>> 8) ^ t0[(crc ^ bytes[offset++]) & 0xff];
+        return crc;
+    }
+}
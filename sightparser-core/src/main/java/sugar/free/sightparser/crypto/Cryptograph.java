@@ -7,13 +7,10 @@ import org.spongycastle.crypto.digests.MD5Digest;
 import org.spongycastle.crypto.digests.SHA1Digest;
 import org.spongycastle.crypto.encodings.OAEPEncoding;
 import org.spongycastle.crypto.engines.RSAEngine;
-import org.spongycastle.crypto.engines.TwofishEngine;
 import org.spongycastle.crypto.generators.RSAKeyPairGenerator;
 import org.spongycastle.crypto.macs.HMac;
-import org.spongycastle.crypto.modes.CBCBlockCipher;
 import org.spongycastle.crypto.params.AsymmetricKeyParameter;
 import org.spongycastle.crypto.params.KeyParameter;
-import org.spongycastle.crypto.params.ParametersWithIV;
 import org.spongycastle.crypto.params.RSAKeyGenerationParameters;
 import org.spongycastle.crypto.params.RSAKeyParameters;
 import org.spongycastle.crypto.params.RSAPrivateCrtKeyParameters;
@@ -58,7 +55,7 @@ public class Cryptograph {
     }
 
     public static byte[] getServicePasswordHash(String servicePassword, byte[] salt) {
-        return multiHashXOR(servicePassword.getBytes(), combine("service pwd".getBytes(), salt), 16);
+        return new ServicePasswordHasher(servicePassword).hash(salt);
     }
 
     private static byte[] byteArrayXOR(byte[] array1, byte[] array2) {
@@ -100,6 +97,10 @@ public class Cryptograph {
         return processRSA(key, data, false);
     }
 
+    public static byte[] encryptRSA(RSAKeyParameters key, byte[] data) throws InvalidCipherTextException {
+        return processRSA(key, data, true);
+    }
+
     public static KeyPair generateRSAKey() {
         RSAKeyPairGenerator generator = new RSAKeyPairGenerator();
         generator.init(new RSAKeyGenerationParameters(BigInteger.valueOf(65537), new SecureRandom(),2048, 8));
@@ -117,79 +118,26 @@ public class Cryptograph {
         return combined;
     }
 
-    private static byte[] produceCCMPrimitive(byte headerByte, byte[] nonce, short number) {
-        ByteBuf byteBuf = new ByteBuf(16);
-        byteBuf.putByte(headerByte);
-        byteBuf.putBytes(nonce);
-        byteBuf.putShort(number);
-        return byteBuf.getBytes();
-    }
-
-    private static byte[] produceIV(byte[] nonce, short payloadSize) {
-        return produceCCMPrimitive((byte) 0x59, nonce, payloadSize);
-    }
-
-    private static byte[] produceCTRBlock(byte[] nonce, short counter) {
-        return produceCCMPrimitive((byte) 0x01, nonce, counter);
-    }
-
-    private static byte[] blockCipherZeroPad(byte[] input) {
-        int modulus = input.length % 16;
-        if (modulus == 0) return input;
-        byte[] append = new byte[16 - modulus];
-        for (int i = 0; i < 16 - modulus; i++) {
-            append[i] = 0x00;
-        }
-        return combine(input, append);
-    }
-
     public static byte[] encryptDataCTR(byte[] data, byte[] key, byte[] nonce) {
-        byte[] padded = blockCipherZeroPad(data);
-        int length = padded.length >> 4;
-        byte[] result = new byte[length * 16];
-        TwofishEngine engine = new TwofishEngine();
-        engine.init(true, new KeyParameter(key));
-        for (int i = 0; i < length; i++) {
-            engine.processBlock(produceCTRBlock(nonce, (short) (i + 1)), 0, result, i * 16);
-        }
-        byte[] xor = byteArrayXOR(padded, result);
-        byte[] copy = new byte[Math.min(data.length, xor.length)];
-        System.arraycopy(xor, 0, copy, 0, copy.length);
+        byte[] copy = new byte[data.length];
+        System.arraycopy(data, 0, copy, 0, data.length);
+        new CCMCipher(key).processDataCTR(copy, nonce);
         return copy;
     }
 
-    private static byte[] processHeader(byte[] header) {
-        ByteBuf byteBuf;
-        byteBuf = new ByteBuf(2 + header.length);
-        byteBuf.putShort((short) header.length);
-        byteBuf.putBytes(header);
-        return byteBuf.getBytes();
-    }
-
     public static byte[] produceCCMTag(byte[] nonce, byte[] payload, byte[] header, byte[] key) {
-        TwofishEngine engine = new TwofishEngine();
-        engine.init(true, new KeyParameter(key));
-        byte[] initializationVector = new byte[engine.getBlockSize()];
-        engine.processBlock(produceIV(nonce, (short) payload.length), 0, initializationVector, 0);
-        CBCBlockCipher cbc = new CBCBlockCipher(new TwofishEngine());
-        cbc.init(true, new ParametersWithIV(new KeyParameter(key), initializationVector));
-        byte[] processedHeader = blockCipherZeroPad(processHeader(header));
-        byte[] processedPayload = blockCipherZeroPad(payload);
-        byte[] combine = combine(processedHeader, blockCipherZeroPad(processedPayload));
-        byte[] result = new byte[combine.length];
-        for (int i = 0; i < combine.length / 16; i++) cbc.processBlock(combine, i * 16, result, i * 16);
-        byte[] result2 = new byte[8];
-        System.arraycopy(result, result.length - 16, result2, 0, 8);
-        byte[] ctr = new byte[engine.getBlockSize()];
-        engine.processBlock(produceCTRBlock(nonce, (short) 0), 0, ctr, 0);
-        return byteArrayXOR(result2, ctr);
+        return new CCMCipher(key).produceCCMTag(nonce, payload, header);
     }
 
     public static int calculateCRC(byte[] bytes) {
-        int crc = 0xffff;
-        for (byte b : bytes) {
-            crc = (crc >>> 8) ^ CRC.table[(crc ^ b) & 0xff];
-        }
-        return crc;
+        return CRC.update(CRC.INITIAL, bytes, 0, bytes.length);
+    }
+
+    public static int calculateCRC(ByteBuf byteBuf) {
+        return byteBuf.updateCRC(CRC.INITIAL, 0, byteBuf.size());
+    }
+
+    public static int calculateCRC(ByteBuf byteBuf, int position, int length) {
+        return byteBuf.updateCRC(CRC.INITIAL, position, length);
     }
 }
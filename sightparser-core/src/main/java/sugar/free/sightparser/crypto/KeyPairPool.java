@@ -0,0 +1,106 @@
+package sugar.free.sightparser.crypto;
+
+/**
+ * Holds one RSA key pair that is generated in the background ahead of a pairing,
+ * so the key exchange doesn't have to wait seconds for {@link Cryptograph#generateRSAKey()}.
+ * Key pairs are handed out only once and are not refilled automatically.
+ */
+public final class KeyPairPool {
+
+    private static final Object lock = new Object();
+
+    private static KeyPair keyPair;
+    private static Thread generator;
+
+    private static int hits = 0;
+    private static int waits = 0;
+    private static int misses = 0;
+    private static long lastGenerationTime = -1;
+
+    private KeyPairPool() {
+    }
+
+    /**
+     * Starts generating a key pair in the background unless one is already available or being generated.
+     */
+    public static void prefill() {
+        synchronized (lock) {
+            if (keyPair != null || generator != null) return;
+            generator = new Thread() {
+                @Override
+                public void run() {
+                    KeyPair generated = null;
+                    try {
+                        generated = generate();
+                    } finally {
+                        //Waiting callers generate a key pair themselves if this one failed
+                        synchronized (lock) {
+                            keyPair = generated;
+                            generator = null;
+                            lock.notifyAll();
+                        }
+                    }
+                }
+            };
+            generator.setName("KeyPairPool");
+            generator.setPriority(Thread.MIN_PRIORITY);
+            generator.start();
+        }
+    }
+
+    /**
+     * Returns the pooled key pair, waits for a pending background generation or generates one right away.
+     */
+    public static KeyPair take() throws InterruptedException {
+        synchronized (lock) {
+            if (keyPair == null && generator != null) {
+                waits++;
+                while (keyPair == null && generator != null) lock.wait();
+            } else if (keyPair != null) hits++;
+            if (keyPair != null) {
+                KeyPair taken = keyPair;
+                keyPair = null;
+                return taken;
+            }
+            misses++;
+        }
+        return generate();
+    }
+
+    private static KeyPair generate() {
+        long start = System.currentTimeMillis();
+        KeyPair generated = Cryptograph.generateRSAKey();
+        long time = System.currentTimeMillis() - start;
+        synchronized (lock) {
+            lastGenerationTime = time;
+        }
+        return generated;
+    }
+
+    public static int getHits() {
+        synchronized (lock) {
+            return hits;
+        }
+    }
+
+    public static int getWaits() {
+        synchronized (lock) {
+            return waits;
+        }
+    }
+
+    public static int getMisses() {
+        synchronized (lock) {
+            return misses;
+        }
+    }
+
+    /**
+     * @return the duration of the last key generation in milliseconds or -1 if none took place yet
+     */
+    public static long getLastGenerationTime() {
+        synchronized (lock) {
+            return lastGenerationTime;
+        }
+    }
+}
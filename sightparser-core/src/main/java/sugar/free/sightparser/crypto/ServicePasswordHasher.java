@@ -0,0 +1,75 @@
+package sugar.free.sightparser.crypto;
+
+import org.spongycastle.crypto.Digest;
+import org.spongycastle.crypto.digests.MD5Digest;
+import org.spongycastle.crypto.digests.SHA1Digest;
+import org.spongycastle.crypto.macs.HMac;
+import org.spongycastle.crypto.params.KeyParameter;
+
+/**
+ * Answers service challenges for one service password.
+ * Both HMACs are keyed once, so their inner and outer pad states are precomputed
+ * and every challenge only pays for hashing the salt.
+ */
+public class ServicePasswordHasher {
+
+    private static final byte[] LABEL = "service pwd".getBytes();
+    private static final int HASH_LENGTH = 16;
+
+    private final HMac md5Hmac;
+    private final HMac sha1Hmac;
+    private final byte[] md5Output = new byte[HASH_LENGTH];
+    private final byte[] sha1Output = new byte[HASH_LENGTH];
+
+    public ServicePasswordHasher(String servicePassword) {
+        byte[] secret = servicePassword.getBytes();
+        byte[] md5Key = new byte[secret.length / 2];
+        byte[] sha1Key = new byte[md5Key.length];
+        System.arraycopy(secret, 0, md5Key, 0, md5Key.length);
+        System.arraycopy(secret, md5Key.length, sha1Key, 0, sha1Key.length);
+        md5Hmac = createHmac(new MD5Digest(), md5Key);
+        sha1Hmac = createHmac(new SHA1Digest(), sha1Key);
+    }
+
+    private static HMac createHmac(Digest digest, byte[] key) {
+        HMac hmac = new HMac(digest);
+        hmac.init(new KeyParameter(key));
+        return hmac;
+    }
+
+    public synchronized byte[] hash(byte[] salt) {
+        multiHmac(md5Hmac, salt, md5Output);
+        multiHmac(sha1Hmac, salt, sha1Output);
+        byte[] hash = new byte[HASH_LENGTH];
+        for (int i = 0; i < HASH_LENGTH; i++) hash[i] = (byte) (md5Output[i] ^ sha1Output[i]);
+        return hash;
+    }
+
+    /**
+     * Same expansion as {@link Cryptograph}'s multi HMAC with the seed "service pwd" + salt, without concatenating arrays.
+     * {@link HMac#doFinal(byte[], int)} resets to the precomputed keyed state.
+     */
+    private static void multiHmac(HMac hmac, byte[] salt, byte[] output) {
+        byte[] chain = null;
+        byte[] block = new byte[hmac.getMacSize()];
+        int size = 0;
+        while (size < output.length) {
+            if (chain == null) {
+                chain = new byte[hmac.getMacSize()];
+                update(hmac, LABEL);
+                update(hmac, salt);
+            } else update(hmac, chain);
+            hmac.doFinal(chain, 0);
+            update(hmac, chain);
+            update(hmac, LABEL);
+            update(hmac, salt);
+            hmac.doFinal(block, 0);
+            System.arraycopy(block, 0, output, size, Math.min(output.length - size, block.length));
+            size += block.length;
+        }
+    }
+
+    private static void update(HMac hmac, byte[] bytes) {
+        hmac.update(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,19 @@
+package sugar.free.sightparser.crypto;
+
+import lombok.Getter;
+
+/**
+ * Pre-keyed ciphers for both directions of a paired session, created once from {@link DerivedKeys}.
+ */
+public class SessionCrypto {
+
+    @Getter
+    private final CCMCipher incoming;
+    @Getter
+    private final CCMCipher outgoing;
+
+    public SessionCrypto(DerivedKeys derivedKeys) {
+        incoming = new CCMCipher(derivedKeys.getIncomingKey());
+        outgoing = new CCMCipher(derivedKeys.getOutgoingKey());
+    }
+}
@@ -0,0 +1,72 @@
+package sugar.free.sightparser.error;
+
+import sugar.free.sightparser.Factory;
+
+/**
+ * Error passed through the pipeline like any other message, instead of throwing and re-injecting exceptions.
+ * The matching exception is only created by {@link #toException()} once it has to be handed to a client.
+ * Events without details are preallocated.
+ */
+public final class ErrorEvent {
+
+    public enum Type {
+        DISCONNECTED,
+        INVALID_AUTH_VERSION,
+        UNKNOWN_AUTH_MESSAGE,
+        INVALID_NONCE,
+        INVALID_AUTH_CRC,
+        INVALID_TRAILER,
+        INVALID_APP_VERSION,
+        UNKNOWN_SERVICE,
+        UNKNOWN_APP_MESSAGE,
+        APP_ERROR_CODE,
+        INVALID_APP_CRC,
+        INVALID_SERVICE_PASSWORD,
+        INBOUND_BUFFER_OVERFLOW,
+        OUTBOUND_QUEUE_FULL,
+        EXCEPTION
+    }
+
+    public static final ErrorEvent DISCONNECTED = new ErrorEvent(Type.DISCONNECTED, DisconnectedError::new);
+    public static final ErrorEvent INVALID_NONCE = stackless(Type.INVALID_NONCE, new InvalidNonceError());
+    public static final ErrorEvent INVALID_AUTH_CRC = stackless(Type.INVALID_AUTH_CRC, new InvalidAuthCRCError());
+    public static final ErrorEvent INVALID_TRAILER = stackless(Type.INVALID_TRAILER, new InvalidTrailerError());
+
+    private final Type type;
+    private final Factory<Exception> exceptionFactory;
+
+    public ErrorEvent(Type type, Factory<Exception> exceptionFactory) {
+        this.type = type;
+        this.exceptionFactory = exceptionFactory;
+    }
+
+    /**
+     * Event that hands out the same exception every time, for errors that are reported over and over.
+     * The exception's stack trace is dropped, it would only point to wherever the event was created.
+     */
+    public static ErrorEvent stackless(Type type, final Exception exception) {
+        exception.setStackTrace(new StackTraceElement[0]);
+        return new ErrorEvent(type, () -> exception);
+    }
+
+    /**
+     * Wraps an exception that was actually thrown by a handler.
+     */
+    public static ErrorEvent of(final Exception exception) {
+        return new ErrorEvent(Type.EXCEPTION, () -> exception);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Exception toException() {
+        return exceptionFactory.create();
+    }
+
+    @Override
+    public String toString() {
+        if (type == Type.EXCEPTION) return type.name() + ": " + exceptionFactory.create();
+        return type.name();
+    }
+}
@@ -0,0 +1,23 @@
+package sugar.free.sightparser.error;
+
+import lombok.Getter;
+
+public class InboundBufferOverflowError extends SightError {
+
+    private static final long serialVersionUID = 1L;
+
+    @Getter
+    private int required;
+    @Getter
+    private int maxCapacity;
+
+    public InboundBufferOverflowError(int required, int maxCapacity) {
+        this.required = required;
+        this.maxCapacity = maxCapacity;
+    }
+
+    @Override
+    public String getMessage() {
+        return "Required: " + required + " Max capacity: " + maxCapacity;
+    }
+}
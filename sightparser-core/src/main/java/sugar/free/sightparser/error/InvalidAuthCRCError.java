@@ -10,14 +10,23 @@ public class InvalidAuthCRCError extends SightError {
     private int received;
     @Getter
     private int expected;
+    private boolean detailed;
+
+    /**
+     * Without details, see {@link ErrorEvent#INVALID_AUTH_CRC}.
+     */
+    public InvalidAuthCRCError() {
+    }
 
     public InvalidAuthCRCError(int received, int expected) {
         this.received = received;
         this.expected = expected;
+        this.detailed = true;
     }
 
     @Override
     public String getMessage() {
+        if (!detailed) return null;
         return "Received: " + received + " Expected: " + expected;
     }
 }
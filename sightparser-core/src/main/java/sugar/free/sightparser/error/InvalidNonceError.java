@@ -13,6 +13,12 @@ public class InvalidNonceError extends SightError {
     @Getter
     private byte[] expected;
 
+    /**
+     * Without details, see {@link ErrorEvent#INVALID_NONCE}.
+     */
+    public InvalidNonceError() {
+    }
+
     public InvalidNonceError(byte[] received, byte[] expected) {
         this.received = received;
         this.expected = expected;
@@ -20,6 +26,7 @@ public class InvalidNonceError extends SightError {
 
     @Override
     public String getMessage() {
+        if (received == null) return null;
         return "Received: " + Hex.toHexString(received) + " Expected: " + Hex.toHexString(expected);
     }
 }
@@ -13,6 +13,12 @@ public class InvalidTrailerError extends SightError {
     @Getter
     private byte[] calculated;
 
+    /**
+     * Without details, see {@link ErrorEvent#INVALID_TRAILER}.
+     */
+    public InvalidTrailerError() {
+    }
+
     public InvalidTrailerError(byte[] received, byte[] calculated) {
         this.received = received;
         this.calculated = calculated;
@@ -20,6 +26,7 @@ public class InvalidTrailerError extends SightError {
 
     @Override
     public String getMessage() {
+        if (received == null) return null;
         return "Received: " + Hex.toHexString(received) + " Expected: " + Hex.toHexString(calculated);
     }
 }
@@ -0,0 +1,16 @@
+package sugar.free.sightparser.error;
+
+import java.io.IOException;
+
+/**
+ * The nonces of an existing pairing can no longer be restored, continuing would reuse nonces under the same key.
+ * The pump has to be paired again.
+ */
+public class NonceJournalLostException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public NonceJournalLostException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,20 @@
+package sugar.free.sightparser.error;
+
+import lombok.Getter;
+
+public class OutboundQueueFullError extends SightError {
+
+    private static final long serialVersionUID = 1L;
+
+    @Getter
+    private int capacity;
+
+    public OutboundQueueFullError(int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public String getMessage() {
+        return "Capacity: " + capacity;
+    }
+}
@@ -0,0 +1,18 @@
+package sugar.free.sightparser.handling;
+
+/**
+ * Classes of requests in the order they are sent to the pump, the request in flight is always finished first.
+ */
+public enum MessagePriority {
+
+    /**
+     * Remote control, e.g. cancelling a bolus or a TBR.
+     */
+    CRITICAL,
+    INTERACTIVE,
+    /**
+     * Sync work like reading the history, it is treated as interactive once it has waited for too long.
+     */
+    BACKGROUND
+
+}
@@ -0,0 +1,35 @@
+package sugar.free.sightparser.handling;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+import sugar.free.sightparser.applayer.messages.AppLayerMessage;
+
+public class MessageRequest {
+
+    @Getter
+    private AppLayerMessage appLayerMessage;
+    @Getter
+    private RequestCallback requestCallback;
+    @Getter
+    @Setter
+    private MessageStatus messageStatus = MessageStatus.NOT_ACTIVE;
+    /**
+     * When the request was queued, in milliseconds of {@link System#nanoTime()}.
+     */
+    @Getter
+    @Setter
+    private long queuedAt;
+    /**
+     * Identical requests that are answered along with this one.
+     */
+    @Getter
+    private final List<MessageRequest> coalescedRequests = new ArrayList<>();
+
+    public MessageRequest(AppLayerMessage appLayerMessage, RequestCallback requestCallback) {
+        this.appLayerMessage = appLayerMessage;
+        this.requestCallback = requestCallback;
+    }
+}
@@ -0,0 +1,18 @@
+package sugar.free.sightparser.handling;
+
+import sugar.free.sightparser.applayer.messages.AppLayerMessage;
+
+/**
+ * Receives the outcome of a {@link MessageRequest}, on Android this forwards to the client over binder.
+ */
+public interface RequestCallback {
+
+    void onMessage(AppLayerMessage message) throws Exception;
+
+    void onError(Exception error) throws Exception;
+
+    /**
+     * Requests of clients that went away are dropped before they are sent to the pump.
+     */
+    boolean isAlive();
+}
@@ -0,0 +1,21 @@
+package sugar.free.sightparser.logging;
+
+/**
+ * Debug logging of the protocol core, which does not know where the output goes.
+ * Nothing is logged until {@link #setSink(LogSink)} has been called.
+ */
+public final class Log {
+
+    private static volatile LogSink sink = new NoopLogSink();
+
+    private Log() {
+    }
+
+    public static void setSink(LogSink logSink) {
+        sink = logSink;
+    }
+
+    public static void d(String tag, String message) {
+        sink.log(tag, message);
+    }
+}
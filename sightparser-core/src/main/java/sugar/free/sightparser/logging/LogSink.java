@@ -0,0 +1,9 @@
+package sugar.free.sightparser.logging;
+
+/**
+ * Receives the debug output of the protocol core, e.g. Logcat on Android or the console on the JVM.
+ */
+public interface LogSink {
+
+    void log(String tag, String message);
+}
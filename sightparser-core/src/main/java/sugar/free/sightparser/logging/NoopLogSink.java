@@ -0,0 +1,11 @@
+package sugar.free.sightparser.logging;
+
+/**
+ * Discards everything, used until a sink has been set.
+ */
+public class NoopLogSink implements LogSink {
+
+    @Override
+    public void log(String tag, String message) {
+    }
+}
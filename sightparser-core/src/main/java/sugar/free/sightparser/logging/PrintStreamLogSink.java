@@ -0,0 +1,17 @@
+package sugar.free.sightparser.logging;
+
+import java.io.PrintStream;
+
+public class PrintStreamLogSink implements LogSink {
+
+    private final PrintStream printStream;
+
+    public PrintStreamLogSink(PrintStream printStream) {
+        this.printStream = printStream;
+    }
+
+    @Override
+    public void log(String tag, String message) {
+        printStream.println(tag + ": " + message);
+    }
+}
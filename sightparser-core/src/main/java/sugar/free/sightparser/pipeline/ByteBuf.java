@@ -1,28 +1,95 @@
 package sugar.free.sightparser.pipeline;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.nio.ReadOnlyBufferException;
+
+import sugar.free.sightparser.Transport;
+import sugar.free.sightparser.crypto.CRC;
 
 @SuppressWarnings({"WeakerAccess", "unused"})
 public class ByteBuf {
 
     private byte[] bytes;
-    private int size = 0;
+    private int readerIndex = 0;
+    private int writerIndex = 0;
+    private final boolean readOnly;
 
     public ByteBuf(int length) {
         bytes = new byte[length];
+        readOnly = false;
+    }
+
+    private ByteBuf(byte[] bytes, int readerIndex, int writerIndex) {
+        this.bytes = bytes;
+        this.readerIndex = readerIndex;
+        this.writerIndex = writerIndex;
+        this.readOnly = true;
+    }
+
+    /**
+     * Creates a read-only view over the given array without copying it.
+     */
+    public static ByteBuf wrap(byte[] bytes) {
+        return new ByteBuf(bytes, 0, bytes.length);
+    }
+
+    public static ByteBuf wrap(byte[] bytes, int offset, int length) {
+        return new ByteBuf(bytes, offset, offset + length);
+    }
+
+    /**
+     * Creates a read-only view over {@code length} bytes starting at {@code position} relative to the reader index.
+     * The view shares the backing array, so it is only valid until this buffer is written to or compacted.
+     */
+    public ByteBuf slice(int position, int length) {
+        return new ByteBuf(bytes, readerIndex + position, readerIndex + position + length);
+    }
+
+    public ByteBuf readSlice(int length) {
+        ByteBuf slice = slice(0, length);
+        readerIndex += length;
+        return slice;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Gives direct access to the backing array of a writable buffer, e.g. for in-place encryption.
+     */
+    public byte[] array() {
+        if (readOnly) throw new ReadOnlyBufferException();
+        return bytes;
     }
 
     public int length() {
         return bytes.length;
     }
 
+    /**
+     * @return the number of readable bytes between the reader and the writer index
+     */
     public int size() {
-        return size;
+        return writerIndex - readerIndex;
+    }
+
+    public int readerIndex() {
+        return readerIndex;
+    }
+
+    public int writerIndex() {
+        return writerIndex;
+    }
+
+    public int writableBytes() {
+        return bytes.length - writerIndex;
     }
 
     public void putByte(byte b) {
-        bytes[size] = b;
-        size++;
+        if (readOnly) throw new ReadOnlyBufferException();
+        bytes[writerIndex++] = b;
     }
 
     public void putBytes(byte[] b) {
@@ -38,8 +105,9 @@ public class ByteBuf {
     }
 
     public void putBytes(byte[] b, int length) {
-        System.arraycopy(b, 0, bytes, size, length);
-        size += length;
+        if (readOnly) throw new ReadOnlyBufferException();
+        System.arraycopy(b, 0, bytes, writerIndex, length);
+        writerIndex += length;
     }
 
     public void putBytesLE(byte[] b, int length) {
@@ -64,7 +132,7 @@ public class ByteBuf {
     }
 
     public byte getByte(int position) {
-        return bytes[position];
+        return bytes[readerIndex + position];
     }
 
     public byte getByte() {
@@ -72,21 +140,19 @@ public class ByteBuf {
     }
 
     public byte readByte() {
-        byte b = getByte(0);
-        shift(1);
-        return b;
+        return bytes[readerIndex++];
     }
 
     public byte[] getBytes(int position, int length) {
         byte[] copy = new byte[length];
-        System.arraycopy(bytes, position, copy, 0, length);
+        System.arraycopy(bytes, readerIndex + position, copy, 0, length);
         return copy;
     }
 
     public byte[] getBytesLE(int position, int length) {
         byte[] copy = new byte[length];
         for (int i = 0; i < length; i++) {
-            copy[i] = bytes[length - 1 - i + position];
+            copy[i] = bytes[readerIndex + length - 1 - i + position];
         }
         return copy;
     }
@@ -101,17 +167,18 @@ public class ByteBuf {
 
     public byte[] readBytes(int length) {
         byte[] bytes = getBytes(0, length);
-        shift(length);
+        readerIndex += length;
         return bytes;
     }
 
     public byte[] readBytesLE(int length) {
         byte[] bytes = getBytesLE(0, length);
-        shift(length);
+        readerIndex += length;
         return bytes;
     }
 
     public short getShort(int position) {
+        position += readerIndex;
         return (short) (bytes[position++]  << 8 |
                 bytes[position] & 0xFF);
     }
@@ -122,11 +189,12 @@ public class ByteBuf {
 
     public short readShort() {
         short s = getShort();
-        shift(2);
+        readerIndex += 2;
         return s;
     }
 
     public int getUInt16LE(int position) {
+        position += readerIndex;
         return (bytes[position++] & 0xFF |
                 (bytes[position] & 0xFF)  << 8);
     }
@@ -137,11 +205,12 @@ public class ByteBuf {
 
     public int readUInt16LE() {
         int i = getUInt16LE();
-        shift(2);
+        readerIndex += 2;
         return i;
     }
 
     public long getUInt32LE(int position) {
+        position += readerIndex;
         return ((long) bytes[position++] & 0xFF) |
                 ((long) bytes[position++] & 0xFF) << 8 |
                 ((long) bytes[position++] & 0xFF) << 16 |
@@ -154,38 +223,79 @@ public class ByteBuf {
 
     public long readUInt32LE() {
         long l = getUInt32LE();
-        shift(4);
+        readerIndex += 4;
         return l;
     }
 
     public byte[] getBytes() {
-        byte[] copy = new byte[size];
-        System.arraycopy(bytes, 0, copy, 0, size);
-        return copy;
+        return getBytes(0, size());
     }
 
     public byte[] getBytesLE() {
-        byte[] copy = new byte[size];
-        for (int i = 0; i < size; i++) copy[i] = bytes[size - 1 - i];
-        return copy;
+        return getBytesLE(0, size());
     }
 
     public byte[] readBytes() {
         byte[] bytes = getBytes();
-        shift(bytes.length);
+        readerIndex = writerIndex;
         return bytes;
     }
 
-    public void shift(int offset) {
-        System.arraycopy(bytes, offset, bytes, 0, bytes.length - offset);
-        size -= offset;
+    /**
+     * Copies bytes relative to the reader index into the given array.
+     */
+    public void getBytes(int position, byte[] destination, int offset, int length) {
+        System.arraycopy(bytes, readerIndex + position, destination, offset, length);
+    }
+
+    /**
+     * Writes bytes relative to the reader index straight from the backing array.
+     */
+    public void writeTo(Transport transport, int position, int length) throws IOException {
+        transport.write(bytes, readerIndex + position, length);
+    }
+
+    /**
+     * Reads from the transport into the backing array, replacing what the buffer held.
+     * @return the number of bytes read or -1 at the end of the stream
+     */
+    public int readFrom(Transport transport) throws IOException {
+        if (readOnly) throw new ReadOnlyBufferException();
+        int read = transport.read(bytes, 0, bytes.length);
+        readerIndex = 0;
+        writerIndex = Math.max(read, 0);
+        return read;
+    }
+
+    public int updateCRC(int crc, int position, int length) {
+        return CRC.update(crc, bytes, readerIndex + position, length);
+    }
+
+    /**
+     * Advances the reader index without copying anything.
+     */
+    public void skip(int length) {
+        readerIndex += length;
+    }
+
+    /**
+     * Moves the readable bytes to the start of the backing array to make room for further writes.
+     * This is the only operation that moves memory.
+     */
+    public void compact() {
+        if (readOnly) throw new ReadOnlyBufferException();
+        if (readerIndex == 0) return;
+        int size = size();
+        System.arraycopy(bytes, readerIndex, bytes, 0, size);
+        readerIndex = 0;
+        writerIndex = size;
     }
 
     @Override
     public String toString() {
         StringBuilder stringBuilder = new StringBuilder("[");
-        for (int i = 0; i < size; i++) {
-            if (i != 0) stringBuilder.append(" ");
+        for (int i = readerIndex; i < writerIndex; i++) {
+            if (i != readerIndex) stringBuilder.append(" ");
             stringBuilder.append(String.format("%02X ", bytes[i]));
         }
         stringBuilder.append("]");
@@ -207,7 +317,7 @@ public class ByteBuf {
 
     public String readUTF16LE(int length) {
         String s = getUTF16LE(length);
-        shift(length);
+        readerIndex += length;
         return s;
     }
 
@@ -241,7 +351,7 @@ public class ByteBuf {
 
     public String readASCII(int length) {
         String s = getASCII(length);
-        shift(length);
+        readerIndex += length;
         return s;
     }
 
@@ -259,7 +369,7 @@ public class ByteBuf {
 
     public boolean readBoolean() {
         boolean b = getBoolean();
-        shift(2);
+        readerIndex += 2;
         return b;
     }
 }
\ No newline at end of file
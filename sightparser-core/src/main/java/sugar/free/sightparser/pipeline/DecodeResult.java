@@ -0,0 +1,32 @@
+package sugar.free.sightparser.pipeline;
+
+import lombok.Getter;
+import sugar.free.sightparser.error.ErrorEvent;
+
+/**
+ * Holds either a decoded message or the error that prevented decoding it.
+ * Handlers keep one instance and reuse it for every frame.
+ */
+public final class DecodeResult<T> {
+
+    @Getter
+    private T message;
+    @Getter
+    private ErrorEvent error;
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    public boolean success(T message) {
+        this.message = message;
+        this.error = null;
+        return true;
+    }
+
+    public boolean failure(ErrorEvent error) {
+        this.message = null;
+        this.error = error;
+        return false;
+    }
+}
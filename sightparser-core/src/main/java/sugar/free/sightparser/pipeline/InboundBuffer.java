@@ -0,0 +1,108 @@
+package sugar.free.sightparser.pipeline;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Circular accumulator for raw bytes read from the socket.
+ * Frames are peeked as {@link ByteBuf} views and consumed by advancing the head, so draining never moves memory.
+ * The buffer grows on demand up to {@link #getMaxCapacity()}.
+ */
+public class InboundBuffer {
+
+    private byte[] buffer;
+    private int head = 0;
+    private int size = 0;
+
+    @Getter
+    @Setter
+    private int maxCapacity;
+    @Getter
+    private int highWaterMark = 0;
+    @Getter
+    private int growCount = 0;
+
+    public InboundBuffer(int initialCapacity, int maxCapacity) {
+        this.buffer = new byte[initialCapacity];
+        this.maxCapacity = maxCapacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    /**
+     * @return false if the data did not fit into {@link #getMaxCapacity()}, the buffer is cleared in that case
+     */
+    public boolean write(byte[] bytes, int offset, int length) {
+        if (!ensureCapacity(size + length)) return false;
+        int tail = (head + size) % buffer.length;
+        int firstPart = Math.min(length, buffer.length - tail);
+        System.arraycopy(bytes, offset, buffer, tail, firstPart);
+        System.arraycopy(bytes, offset + firstPart, buffer, 0, length - firstPart);
+        size += length;
+        if (size > highWaterMark) highWaterMark = size;
+        return true;
+    }
+
+    public boolean write(byte[] bytes) {
+        return write(bytes, 0, bytes.length);
+    }
+
+    private boolean ensureCapacity(int required) {
+        if (required <= buffer.length) return true;
+        if (required > maxCapacity) {
+            clear();
+            return false;
+        }
+        int capacity = buffer.length;
+        while (capacity < required) capacity <<= 1;
+        byte[] grown = new byte[Math.min(capacity, maxCapacity)];
+        copyOut(0, grown, 0, size);
+        buffer = grown;
+        head = 0;
+        growCount++;
+        return true;
+    }
+
+    private void copyOut(int position, byte[] target, int targetOffset, int length) {
+        int start = (head + position) % buffer.length;
+        int firstPart = Math.min(length, buffer.length - start);
+        System.arraycopy(buffer, start, target, targetOffset, firstPart);
+        System.arraycopy(buffer, 0, target, targetOffset + firstPart, length - firstPart);
+    }
+
+    public byte getByte(int position) {
+        return buffer[(head + position) % buffer.length];
+    }
+
+    public int getUInt16LE(int position) {
+        return getByte(position) & 0xFF | (getByte(position + 1) & 0xFF) << 8;
+    }
+
+    /**
+     * Returns a read-only view over the next {@code length} bytes without consuming them.
+     * Only frames that wrap around the end of the backing array are copied.
+     * The view is valid until the next write.
+     */
+    public ByteBuf peek(int length) {
+        if (head + length <= buffer.length) return ByteBuf.wrap(buffer, head, length);
+        byte[] frame = new byte[length];
+        copyOut(0, frame, 0, length);
+        return ByteBuf.wrap(frame);
+    }
+
+    public void consume(int length) {
+        size -= length;
+        head = size == 0 ? 0 : (head + length) % buffer.length;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+}
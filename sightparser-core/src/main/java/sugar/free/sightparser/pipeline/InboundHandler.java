@@ -2,6 +2,11 @@ package sugar.free.sightparser.pipeline;
 
 public interface InboundHandler extends Handler {
 
+    /**
+     * @return the message types this handler wants to receive, subclasses included
+     */
+    Class<?>[] getInboundMessageTypes();
+
     void onInboundMessage(Object message, Pipeline pipeline) throws Exception;
 
 }
@@ -2,6 +2,11 @@ package sugar.free.sightparser.pipeline;
 
 public interface OutboundHandler extends Handler {
 
+    /**
+     * @return the message types this handler wants to receive, subclasses included
+     */
+    Class<?>[] getOutboundMessageTypes();
+
     void onOutboundMessage(Object message, Pipeline pipeline) throws Exception;
 
 }
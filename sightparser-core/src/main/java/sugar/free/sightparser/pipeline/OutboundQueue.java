@@ -0,0 +1,149 @@
+package sugar.free.sightparser.pipeline;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Getter;
+import sugar.free.sightparser.Transport;
+import sugar.free.sightparser.logging.Log;
+
+/**
+ * Bounded queue of outbound messages drained by a single writer thread.
+ * Any thread may enqueue without blocking, the writer runs the outbound handlers, so frames are
+ * serialized, encrypted and written in enqueue order and socket writes never interleave.
+ * Frames are flushed to the stream in batches whenever the queue runs empty.
+ */
+public class OutboundQueue implements Runnable {
+
+    private static final Entry STOP = new Entry(null);
+
+    private final BlockingQueue<Entry> queue;
+    private final Pipeline pipeline;
+    private Thread writerThread;
+
+    @Getter
+    private final int capacity;
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    @Getter
+    private long messageCount = 0;
+    @Getter
+    private long maxLatency = 0;
+    private long totalLatency = 0;
+
+    public OutboundQueue(Pipeline pipeline, int capacity) {
+        this.pipeline = pipeline;
+        this.capacity = capacity;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    public synchronized void start() {
+        if (writerThread != null) return;
+        writerThread = new Thread(this, "SightWriter");
+        writerThread.start();
+    }
+
+    public boolean isRunning() {
+        return writerThread != null;
+    }
+
+    public boolean isWriterThread() {
+        return Thread.currentThread() == writerThread;
+    }
+
+    public int depth() {
+        return queue.size();
+    }
+
+    public int getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    /**
+     * @return the average time in milliseconds between enqueuing a message and its outbound handlers completing
+     */
+    public synchronized long getAverageLatency() {
+        return messageCount == 0 ? 0 : totalLatency / messageCount;
+    }
+
+    /**
+     * @return false if the queue is full
+     */
+    public boolean enqueue(Object message) {
+        if (!queue.offer(new Entry(message))) return false;
+        int depth = queue.size();
+        //Producers race each other, accumulateAndGet is not available before API 24
+        int max;
+        while (depth > (max = maxDepth.get()) && !maxDepth.compareAndSet(max, depth)) ;
+        return true;
+    }
+
+    /**
+     * Lets the writer finish everything queued so far, giving up after the timeout.
+     * A writer that is still blocked by then is interrupted and the transport is closed underneath it,
+     * since a blocking socket write does not react to the interrupt.
+     */
+    public void stop(long timeout) {
+        Thread thread;
+        synchronized (this) {
+            thread = writerThread;
+            if (thread == null) return;
+        }
+        try {
+            if (queue.offer(STOP, timeout, TimeUnit.MILLISECONDS)) thread.join(timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            Log.d("SightService", "Writer thread did not finish, dropping " + queue.size() + " messages");
+            thread.interrupt();
+            Transport transport = pipeline.getTransport();
+            if (transport != null) {
+                try {
+                    transport.close();
+                } catch (IOException e) {
+                }
+            }
+        }
+        queue.clear();
+        synchronized (this) {
+            writerThread = null;
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                Entry entry = queue.take();
+                if (entry == STOP) {
+                    pipeline.flushOutbound();
+                    return;
+                }
+                pipeline.dispatchOutbound(entry.message);
+                if (queue.isEmpty()) pipeline.flushOutbound();
+                long latency = System.nanoTime() / 1000000 - entry.enqueuedAt;
+                synchronized (this) {
+                    messageCount++;
+                    totalLatency += latency;
+                    if (latency > maxLatency) maxLatency = latency;
+                }
+            }
+        } catch (InterruptedException e) {
+            Log.d("SightService", "Writer thread interrupted");
+        }
+    }
+
+    private static class Entry {
+
+        private final Object message;
+        private final long enqueuedAt;
+
+        private Entry(Object message) {
+            this.message = message;
+            this.enqueuedAt = System.nanoTime() / 1000000;
+        }
+    }
+}
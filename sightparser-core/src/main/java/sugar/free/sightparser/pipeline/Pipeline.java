@@ -0,0 +1,426 @@
+package sugar.free.sightparser.pipeline;
+
+import org.spongycastle.util.encoders.Hex;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+
+import lombok.Getter;
+import sugar.free.sightparser.DataStorage;
+import sugar.free.sightparser.NonceJournal;
+import sugar.free.sightparser.Transport;
+import sugar.free.sightparser.applayer.messages.AppLayerMessage;
+import sugar.free.sightparser.applayer.descriptors.Service;
+import sugar.free.sightparser.applayer.messages.connection.ActivateServiceMessage;
+import sugar.free.sightparser.applayer.messages.connection.BindMessage;
+import sugar.free.sightparser.applayer.messages.connection.ConnectMessage;
+import sugar.free.sightparser.applayer.messages.connection.DeactivateAllServicesMessage;
+import sugar.free.sightparser.applayer.messages.connection.DisconnectMessage;
+import sugar.free.sightparser.applayer.messages.connection.ServiceChallengeMessage;
+import sugar.free.sightparser.authlayer.ConnectionRequest;
+import sugar.free.sightparser.authlayer.DisconnectRequest;
+import sugar.free.sightparser.authlayer.Nonce;
+import sugar.free.sightparser.authlayer.SynRequest;
+import sugar.free.sightparser.crypto.DerivedKeys;
+import sugar.free.sightparser.crypto.SessionCrypto;
+import sugar.free.sightparser.error.ErrorEvent;
+import sugar.free.sightparser.error.NonceJournalLostException;
+import sugar.free.sightparser.handling.MessagePriority;
+import sugar.free.sightparser.handling.MessageRequest;
+import sugar.free.sightparser.handling.StatusCallback;
+import sugar.free.sightparser.logging.Log;
+import sugar.free.sightparser.pipeline.handlers.AppLayerProcessor;
+import sugar.free.sightparser.pipeline.handlers.AuthLayerProcessor;
+import sugar.free.sightparser.pipeline.handlers.ByteProcessor;
+import sugar.free.sightparser.pipeline.handlers.ConnectionEstablisher;
+import sugar.free.sightparser.pipeline.handlers.PairingEstablisher;
+import sugar.free.sightparser.pipeline.handlers.RequestWorker;
+import sugar.free.sightparser.telemetry.Telemetry;
+
+public class Pipeline {
+
+    private StatusCallback statusCallback;
+
+    public static final int INBOUND_BUFFER_CAPACITY = 4096;
+    public static final int INBOUND_BUFFER_MAX_CAPACITY = 65536;
+    public static final int READ_BUFFER_SIZE = 1024;
+    public static final int OUTBOUND_QUEUE_CAPACITY = 64;
+    private static final long READER_JOIN_TIMEOUT = 1000;
+    private static final long WRITER_DRAIN_TIMEOUT = 2000;
+
+    @Getter
+    private InboundBuffer inboundBuffer = new InboundBuffer(INBOUND_BUFFER_CAPACITY, INBOUND_BUFFER_MAX_CAPACITY);
+    private volatile RoutingTable routingTable;
+    private ByteProcessor byteProcessor = new ByteProcessor(inboundBuffer);
+    @Getter
+    private OutboundQueue outboundQueue = new OutboundQueue(this, OUTBOUND_QUEUE_CAPACITY);
+
+    private DataStorage dataStorage;
+    private NonceJournal nonceJournal;
+    @Getter
+    private Transport transport;
+    private Thread readerThread;
+    private volatile boolean readerStopped;
+    private ThreadFactory readerThreadFactory = runnable -> new Thread(runnable, "SightReader");
+    private TraceWriter traceWriter;
+
+    @Getter
+    private DerivedKeys derivedKeys;
+    @Getter
+    private SessionCrypto sessionCrypto;
+    @Getter
+    private long commID = 0;
+
+    @Getter
+    private Nonce lastNonceSent = new Nonce();
+    @Getter
+    private Nonce lastNonceReceived = null;
+
+    @Getter
+    private volatile Status status = Status.DISCONNECTED;
+    @Getter
+    private List<Service> activatedServices = new ArrayList<>(Arrays.asList(Service.CONNECTION));
+    @Getter
+    private RequestWorker requestWorker = new RequestWorker();
+
+    public Pipeline(DataStorage dataStorage, NonceJournal nonceJournal, StatusCallback statusCallback) throws IOException {
+        this.dataStorage = dataStorage;
+        this.nonceJournal = nonceJournal;
+        this.statusCallback = statusCallback;
+        if (dataStorage.contains("INCOMINGKEY") && dataStorage.contains("OUTGOINGKEY")) {
+            derivedKeys = new DerivedKeys();
+            derivedKeys.setIncomingKey(Hex.decode(dataStorage.get("INCOMINGKEY")));
+            derivedKeys.setOutgoingKey(Hex.decode(dataStorage.get("OUTGOINGKEY")));
+            sessionCrypto = new SessionCrypto(derivedKeys);
+        }
+        loadNonces();
+        commID = nonceJournal.getCommID();
+        lastNonceSent.set(nonceJournal.getReservedNonceSent());
+        if (nonceJournal.getLastNonceReceived() != null)
+            lastNonceReceived = new Nonce(nonceJournal.getLastNonceReceived());
+        setupPipeline();
+    }
+
+    /**
+     * Restores the nonces from the journal, or from the shared preferences they were kept in before.
+     * If they are lost while keys exist the keys are discarded, the pump has to be paired again
+     * because starting over at zero would reuse nonces under the same key.
+     */
+    private void loadNonces() throws IOException {
+        boolean loaded;
+        try {
+            loaded = nonceJournal.load();
+        } catch (NonceJournalLostException e) {
+            if (derivedKeys != null) {
+                discardKeys();
+                throw e;
+            }
+            Log.d("SightService", "Discarding unreadable nonce journal without pairing: " + e.getMessage());
+            nonceJournal.reset();
+            loaded = false;
+        }
+        if (loaded) return;
+        if (dataStorage.contains("LASTNONCESENT") || derivedKeys == null) migrateNonces();
+        else {
+            discardKeys();
+            throw new NonceJournalLostException("Nonce journal missing for an existing pairing");
+        }
+    }
+
+    private void discardKeys() {
+        Log.d("SightService", "Nonces lost, discarding the derived keys");
+        dataStorage.remove("INCOMINGKEY");
+        dataStorage.remove("OUTGOINGKEY");
+        derivedKeys = null;
+        sessionCrypto = null;
+        nonceJournal.reset();
+    }
+
+    private void migrateNonces() throws IOException {
+        if (dataStorage.contains("LASTNONCERECEIVED"))
+            nonceJournal.setLastNonceReceived(Nonce.fromBytesBE(Hex.decode(dataStorage.get("LASTNONCERECEIVED"))));
+        if (dataStorage.contains("LASTNONCESENT"))
+            nonceJournal.flush(Nonce.fromBytesBE(Hex.decode(dataStorage.get("LASTNONCESENT"))));
+        if (dataStorage.contains("COMMID"))
+            nonceJournal.setCommID(Long.parseLong(dataStorage.get("COMMID")));
+        dataStorage.remove("COMMID");
+        dataStorage.remove("LASTNONCESENT");
+        dataStorage.remove("LASTNONCERECEIVED");
+    }
+
+    private void setupPipeline() {
+        routingTable = new RoutingTable(byteProcessor, new AuthLayerProcessor(), new AppLayerProcessor(),
+                new ConnectionEstablisher(), requestWorker);
+    }
+
+    /**
+     * Handlers can be added and removed at any time, e.g. the pairing handler only while pairing.
+     */
+    public synchronized void addHandler(Handler handler) {
+        if (!routingTable.contains(handler)) routingTable = routingTable.with(handler);
+    }
+
+    public synchronized void removeHandler(Handler handler) {
+        routingTable = routingTable.without(handler);
+    }
+
+    /**
+     * Errors are passed as {@link ErrorEvent}s, exceptions thrown by handlers are wrapped into one.
+     */
+    public void receive(Object message) {
+        if (message instanceof ErrorEvent) logError((ErrorEvent) message);
+        for (InboundHandler inboundHandler : routingTable.inbound(message.getClass())) {
+            try {
+                inboundHandler.onInboundMessage(message, this);
+            } catch (IOException e) {
+                setStatus(Status.DISCONNECTED);
+            } catch (Exception e) {
+                receive(ErrorEvent.of(e));
+            }
+        }
+    }
+
+    /**
+     * Runs the outbound handlers on the writer thread once {@link #startWriting()} has been called,
+     * before that or when called from the writer thread itself they run on the calling thread.
+     * @return false if the outbound queue was full and the message has been dropped, the caller has to report that
+     */
+    public boolean send(Object message) {
+        if (outboundQueue.isRunning() && !outboundQueue.isWriterThread()) {
+            if (outboundQueue.enqueue(message)) return true;
+            Log.d("SightService", "Outbound queue full, dropping " + message.getClass().getSimpleName());
+            Telemetry.count("Exception In Pipeline", "Message", ErrorEvent.Type.OUTBOUND_QUEUE_FULL.name());
+            return false;
+        }
+        dispatchOutbound(message);
+        return true;
+    }
+
+    void dispatchOutbound(Object message) {
+        if (message instanceof ErrorEvent) logError((ErrorEvent) message);
+        for (OutboundHandler outboundHandler : routingTable.outbound(message.getClass())) {
+            try {
+                outboundHandler.onOutboundMessage(message, this);
+            } catch (IOException e) {
+                setStatus(Status.DISCONNECTED);
+            }  catch (Exception e) {
+                dispatchOutbound(ErrorEvent.of(e));
+            }
+        }
+    }
+
+    private void logError(ErrorEvent errorEvent) {
+        if (errorEvent.getType() == ErrorEvent.Type.DISCONNECTED) return;
+        Log.d("SightService", "ERROR: " + errorEvent);
+        Telemetry.count("Exception In Pipeline", "Message", errorEvent.getType().name());
+    }
+
+    /**
+     * Writes out the frames the writer thread held back, called whenever the outbound queue runs empty.
+     */
+    void flushOutbound() {
+        try {
+            byteProcessor.flush(this);
+        } catch (IOException e) {
+            setStatus(Status.DISCONNECTED);
+        }
+    }
+
+    /**
+     * Sets the largest write passed to the output stream, e.g. to match the transport's packet size.
+     */
+    public void setWriteChunkSize(int chunkSize) {
+        byteProcessor.setChunkSize(chunkSize);
+    }
+
+    public void startWriting() {
+        outboundQueue.start();
+    }
+
+    /**
+     * Writes out what is still queued, has to be called before the transport is closed.
+     */
+    public void stopWriting() {
+        outboundQueue.stop(WRITER_DRAIN_TIMEOUT);
+        Log.d("SightService", "Outbound queue max depth: " + outboundQueue.getMaxDepth()
+                + " messages: " + outboundQueue.getMessageCount()
+                + " average latency: " + outboundQueue.getAverageLatency() + "ms"
+                + " max latency: " + outboundQueue.getMaxLatency() + "ms"
+                + " frames: " + byteProcessor.getFrameCount()
+                + " writes: " + byteProcessor.getWriteCount()
+                + " flushes: " + byteProcessor.getFlushCount());
+        for (MessagePriority priority : MessagePriority.values()) {
+            if (requestWorker.getRequestCount(priority) == 0) continue;
+            Log.d("SightService", priority + " requests: " + requestWorker.getRequestCount(priority)
+                    + " average queue wait: " + requestWorker.getAverageQueueWait(priority) + "ms"
+                    + " max queue wait: " + requestWorker.getMaxQueueWait(priority) + "ms");
+        }
+        if (requestWorker.getCoalescedCount() != 0)
+            Log.d("SightService", "Coalesced requests: " + requestWorker.getCoalescedCount());
+    }
+
+    /**
+     * Records everything read from and written to the transport until {@link #stopCapture()}, see {@link TraceWriter}.
+     */
+    public synchronized void startCapture(OutputStream outputStream) throws IOException {
+        stopCapture();
+        traceWriter = new TraceWriter(outputStream);
+        byteProcessor.setTraceWriter(traceWriter);
+    }
+
+    public synchronized void stopCapture() {
+        if (traceWriter == null) return;
+        byteProcessor.setTraceWriter(null);
+        try {
+            traceWriter.close();
+        } catch (IOException e) {
+            Log.d("SightService", "Failed to close trace: " + e.getMessage());
+        }
+        traceWriter = null;
+    }
+
+    /**
+     * Starts a thread that blocks on the transport and passes everything it reads to the handlers.
+     * End of stream or a failed read disconnect the pipeline.
+     */
+    public void startReading() {
+        readerStopped = false;
+        readerThread = readerThreadFactory.newThread(this::readLoop);
+        readerThread.start();
+    }
+
+    /**
+     * Creates the reader thread, e.g. to name it differently or to measure what it costs on the platform.
+     */
+    public void setReaderThreadFactory(ThreadFactory readerThreadFactory) {
+        this.readerThreadFactory = readerThreadFactory;
+    }
+
+    public boolean isReading() {
+        return readerThread != null;
+    }
+
+    /**
+     * Has to be called after the transport has been closed, waits for the reader thread to notice.
+     */
+    public void stopReading() {
+        if (readerThread == null) return;
+        readerStopped = true;
+        try {
+            readerThread.join(READER_JOIN_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (readerThread.isAlive()) Log.d("SightService", "Reader thread did not stop");
+        readerThread = null;
+    }
+
+    private void readLoop() {
+        //Reused for every read, the inbound handlers copy what they keep before receive returns
+        ByteBuf chunk = new ByteBuf(READ_BUFFER_SIZE);
+        long startTime = System.nanoTime();
+        long reads = 0;
+        try {
+            while (chunk.readFrom(transport) != -1) {
+                reads++;
+                receive(chunk);
+            }
+            Log.d("SightService", "Transport reached end of stream");
+        } catch (IOException e) {
+            if (!readerStopped) Log.d("SightService", "Read failed: " + e.getMessage());
+        }
+        Log.d("SightService", "Reader thread ran " + (System.nanoTime() - startTime) / 1000000 + "ms for " + reads + " reads");
+        if (!readerStopped) setStatus(Status.DISCONNECTED);
+    }
+
+    /**
+     * Blocks until the pipeline is disconnected.
+     */
+    public synchronized void awaitDisconnect() throws InterruptedException {
+        while (status != Status.DISCONNECTED) wait();
+    }
+
+    public void setDerivedKeys(DerivedKeys derivedKeys) {
+        this.derivedKeys = derivedKeys;
+        this.sessionCrypto = new SessionCrypto(derivedKeys);
+        dataStorage.set("INCOMINGKEY", Hex.toHexString(derivedKeys.getIncomingKey()));
+        dataStorage.set("OUTGOINGKEY", Hex.toHexString(derivedKeys.getOutgoingKey()));
+    }
+
+    public void setCommID(long commID) throws IOException {
+        nonceJournal.setCommID(commID);
+        this.commID = commID;
+    }
+
+    /**
+     * Has to be called before a message with this nonce is sent, the journal might need to extend its reservation.
+     */
+    public void setLastNonceSent(Nonce lastNonceSent) throws IOException {
+        nonceJournal.reserve(lastNonceSent);
+        this.lastNonceSent.set(lastNonceSent);
+    }
+
+    public void setLastNonceReceived(Nonce lastNonceReceived) {
+        if (this.lastNonceReceived == null) this.lastNonceReceived = new Nonce(lastNonceReceived);
+        else this.lastNonceReceived.set(lastNonceReceived);
+        nonceJournal.setLastNonceReceived(lastNonceReceived);
+    }
+
+    public void flushNonceJournal() {
+        try {
+            nonceJournal.flush(lastNonceSent);
+        } catch (IOException e) {
+            Log.d("SightService", "Failed to flush nonce journal: " + e.getMessage());
+        }
+    }
+
+    public void setStatus(Status status) {
+        synchronized (this) {
+            this.status = status;
+            notifyAll();
+        }
+        statusCallback.onStatusChange(status);
+    }
+
+    public void establishPairing() {
+        addHandler(new PairingEstablisher());
+        send(new ConnectionRequest());
+    }
+
+    public void establishConnection() {
+        send(new SynRequest());
+    }
+
+    public void disconnect() {
+        if (status == Status.CONNECTED) {
+            send(new DeactivateAllServicesMessage());
+            activatedServices.clear();
+            send(new DisconnectMessage());
+            send(new DisconnectRequest());
+        }
+    }
+
+    public void requestMessage(MessageRequest messageRequest) {
+        AppLayerMessage message = messageRequest.getAppLayerMessage();
+        if (status == Status.CONNECTED
+            && !(message instanceof ActivateServiceMessage)
+            && !(message instanceof BindMessage)
+            && !(message instanceof ConnectMessage)
+            && !(message instanceof DisconnectMessage)
+            && !(message instanceof DeactivateAllServicesMessage)
+            && !(message instanceof ServiceChallengeMessage))
+                requestWorker.requestMessage(this, messageRequest);
+    }
+
+    /**
+     * Sets the connected transport to read from and write to, writes are split according to its MTU.
+     */
+    public void setTransport(Transport transport) {
+        this.transport = transport;
+        byteProcessor.setChunkSize(transport.getMtu());
+    }
+}
@@ -0,0 +1,75 @@
+package sugar.free.sightparser.pipeline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps message classes to the handlers that accept them, in pipeline order.
+ * The route of a concrete class is resolved from the declared types once and cached afterwards.
+ * A table never changes its handlers, adding or removing one creates a new table.
+ */
+final class RoutingTable {
+
+    private static final InboundHandler[] NO_INBOUND_HANDLERS = new InboundHandler[0];
+    private static final OutboundHandler[] NO_OUTBOUND_HANDLERS = new OutboundHandler[0];
+
+    private final Handler[] handlers;
+    private final ConcurrentHashMap<Class<?>, InboundHandler[]> inboundRoutes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Class<?>, OutboundHandler[]> outboundRoutes = new ConcurrentHashMap<>();
+
+    RoutingTable(Handler... handlers) {
+        this.handlers = handlers;
+    }
+
+    RoutingTable with(Handler handler) {
+        Handler[] handlers = Arrays.copyOf(this.handlers, this.handlers.length + 1);
+        handlers[this.handlers.length] = handler;
+        return new RoutingTable(handlers);
+    }
+
+    RoutingTable without(Handler handler) {
+        List<Handler> handlers = new ArrayList<>(Arrays.asList(this.handlers));
+        handlers.remove(handler);
+        return new RoutingTable(handlers.toArray(new Handler[handlers.size()]));
+    }
+
+    boolean contains(Handler handler) {
+        for (Handler h : handlers) if (h == handler) return true;
+        return false;
+    }
+
+    InboundHandler[] inbound(Class<?> messageClass) {
+        InboundHandler[] route = inboundRoutes.get(messageClass);
+        if (route == null) {
+            List<InboundHandler> matches = new ArrayList<>();
+            for (Handler handler : handlers) {
+                if (handler instanceof InboundHandler && accepts(((InboundHandler) handler).getInboundMessageTypes(), messageClass))
+                    matches.add((InboundHandler) handler);
+            }
+            route = matches.size() == 0 ? NO_INBOUND_HANDLERS : matches.toArray(new InboundHandler[matches.size()]);
+            inboundRoutes.put(messageClass, route);
+        }
+        return route;
+    }
+
+    OutboundHandler[] outbound(Class<?> messageClass) {
+        OutboundHandler[] route = outboundRoutes.get(messageClass);
+        if (route == null) {
+            List<OutboundHandler> matches = new ArrayList<>();
+            for (Handler handler : handlers) {
+                if (handler instanceof OutboundHandler && accepts(((OutboundHandler) handler).getOutboundMessageTypes(), messageClass))
+                    matches.add((OutboundHandler) handler);
+            }
+            route = matches.size() == 0 ? NO_OUTBOUND_HANDLERS : matches.toArray(new OutboundHandler[matches.size()]);
+            outboundRoutes.put(messageClass, route);
+        }
+        return route;
+    }
+
+    private static boolean accepts(Class<?>[] types, Class<?> messageClass) {
+        for (Class<?> type : types) if (type.isAssignableFrom(messageClass)) return true;
+        return false;
+    }
+}
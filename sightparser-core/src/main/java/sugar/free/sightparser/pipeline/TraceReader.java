@@ -0,0 +1,68 @@
+package sugar.free.sightparser.pipeline;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads traces written by {@link TraceWriter}.
+ */
+public class TraceReader implements Closeable {
+
+    private final DataInputStream inputStream;
+    private long time = 0;
+
+    public TraceReader(InputStream inputStream) throws IOException {
+        this.inputStream = new DataInputStream(new BufferedInputStream(inputStream));
+        byte[] magic = new byte[TraceWriter.MAGIC.length];
+        this.inputStream.readFully(magic);
+        if (!Arrays.equals(magic, TraceWriter.MAGIC)) throw new IOException("Not a trace");
+        byte version = this.inputStream.readByte();
+        if (version != TraceWriter.VERSION) throw new IOException("Unsupported trace version " + version);
+    }
+
+    /**
+     * @return the next record or null at the end of the trace
+     */
+    public TraceRecord read() throws IOException {
+        int direction = inputStream.read();
+        if (direction == -1) return null;
+        if (direction != TraceRecord.INBOUND && direction != TraceRecord.OUTBOUND)
+            throw new IOException("Invalid record direction " + direction);
+        time += readVarInt();
+        long length = readVarInt();
+        if (length > Pipeline.INBOUND_BUFFER_MAX_CAPACITY) throw new IOException("Invalid record length " + length);
+        byte[] bytes = new byte[(int) length];
+        inputStream.readFully(bytes);
+        return new TraceRecord((byte) direction, time, bytes);
+    }
+
+    public List<TraceRecord> readAll() throws IOException {
+        List<TraceRecord> records = new ArrayList<>();
+        TraceRecord record;
+        while ((record = read()) != null) records.add(record);
+        return records;
+    }
+
+    private long readVarInt() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = inputStream.read();
+            if (b == -1) throw new EOFException("Truncated record");
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Invalid varint");
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+}
@@ -0,0 +1,30 @@
+package sugar.free.sightparser.pipeline;
+
+import lombok.Getter;
+
+/**
+ * Bytes that crossed the transport at one point of a trace.
+ */
+@Getter
+public class TraceRecord {
+
+    public static final byte INBOUND = 1;
+    public static final byte OUTBOUND = 2;
+
+    private final byte direction;
+    /**
+     * Microseconds since the trace was started.
+     */
+    private final long time;
+    private final byte[] bytes;
+
+    public TraceRecord(byte direction, long time, byte[] bytes) {
+        this.direction = direction;
+        this.time = time;
+        this.bytes = bytes;
+    }
+
+    public boolean isInbound() {
+        return direction == INBOUND;
+    }
+}
@@ -0,0 +1,67 @@
+package sugar.free.sightparser.pipeline;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import sugar.free.sightparser.logging.Log;
+
+/**
+ * Captures the raw bytes of a connection, inbound as read from the transport and outbound frame by frame.
+ * Each record is a direction byte, the microseconds since the previous record and the length as varints,
+ * followed by the bytes. A failing stream ends the capture but never the connection.
+ */
+public class TraceWriter implements Closeable {
+
+    static final byte[] MAGIC = {'S', 'T', 'R', 'C'};
+    static final byte VERSION = 1;
+
+    private final OutputStream outputStream;
+    private long lastRecord;
+    private boolean failed;
+
+    public TraceWriter(OutputStream outputStream) throws IOException {
+        this.outputStream = new BufferedOutputStream(outputStream);
+        this.outputStream.write(MAGIC);
+        this.outputStream.write(VERSION);
+        lastRecord = System.nanoTime();
+    }
+
+    public void inbound(ByteBuf chunk) {
+        record(TraceRecord.INBOUND, chunk.array(), chunk.readerIndex(), chunk.size());
+    }
+
+    public void outbound(ByteBuf frame) {
+        record(TraceRecord.OUTBOUND, frame.array(), frame.readerIndex(), frame.size());
+    }
+
+    private synchronized void record(byte direction, byte[] bytes, int offset, int length) {
+        if (failed) return;
+        long now = System.nanoTime();
+        try {
+            outputStream.write(direction);
+            writeVarInt((now - lastRecord) / 1000);
+            writeVarInt(length);
+            outputStream.write(bytes, offset, length);
+        } catch (IOException e) {
+            failed = true;
+            Log.d("SightService", "Trace capture failed: " + e.getMessage());
+        }
+        lastRecord = now;
+    }
+
+    private void writeVarInt(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            outputStream.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        outputStream.write((int) value);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        failed = true;
+        outputStream.close();
+    }
+}
@@ -0,0 +1,63 @@
+package sugar.free.sightparser.pipeline.handlers;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import sugar.free.sightparser.applayer.messages.AppLayerMessage;
+import sugar.free.sightparser.authlayer.DataMessage;
+import sugar.free.sightparser.logging.Log;
+import sugar.free.sightparser.pipeline.DecodeResult;
+import sugar.free.sightparser.pipeline.DuplexHandler;
+import sugar.free.sightparser.pipeline.Pipeline;
+import sugar.free.sightparser.telemetry.Counter;
+import sugar.free.sightparser.telemetry.Telemetry;
+
+public class AppLayerProcessor implements DuplexHandler {
+
+    private final DecodeResult<AppLayerMessage> result = new DecodeResult<>();
+    private final ConcurrentHashMap<Class<?>, Counter> receivedCounters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Class<?>, Counter> sentCounters = new ConcurrentHashMap<>();
+
+    @Override
+    public Class<?>[] getInboundMessageTypes() {
+        return new Class<?>[] {DataMessage.class};
+    }
+
+    @Override
+    public Class<?>[] getOutboundMessageTypes() {
+        return new Class<?>[] {AppLayerMessage.class};
+    }
+
+    @Override
+    public void onInboundMessage(Object message, Pipeline pipeline) throws Exception {
+        if (!(message instanceof DataMessage)) return;
+        DataMessage dataMessage = (DataMessage) message;
+        if (!AppLayerMessage.deserialize(dataMessage.getDataBuf(), result)) {
+            pipeline.receive(result.getError());
+            return;
+        }
+        AppLayerMessage appLayerMessage = result.getMessage();
+        Log.d("SightService", "RECEIVE: " + appLayerMessage.getClass());
+        pipeline.receive(appLayerMessage);
+        getCounter(receivedCounters, "Received Application Layer Message", appLayerMessage.getClass()).increment();
+    }
+
+    @Override
+    public void onOutboundMessage(Object message, Pipeline pipeline) throws Exception {
+        if (!(message instanceof AppLayerMessage)) return;
+        Log.d("SightService", "SEND: " + message.getClass());
+        DataMessage dataMessage = new DataMessage();
+        dataMessage.setData(((AppLayerMessage) message).serialize());
+        pipeline.send(dataMessage);
+        getCounter(sentCounters, "Sent Application Layer Message", message.getClass()).increment();
+    }
+
+    private static Counter getCounter(ConcurrentHashMap<Class<?>, Counter> counters, String event, Class<?> clazz) {
+        Counter counter = counters.get(clazz);
+        if (counter == null) {
+            counter = Telemetry.counter(event, "Message", clazz.getSimpleName());
+            counters.put(clazz, counter);
+        }
+        return counter;
+    }
+
+}
@@ -0,0 +1,61 @@
+package sugar.free.sightparser.pipeline.handlers;
+
+import sugar.free.sightparser.authlayer.AuthLayerMessage;
+import sugar.free.sightparser.authlayer.CRCAuthLayerMessage;
+import sugar.free.sightparser.authlayer.KeyRequest;
+import sugar.free.sightparser.authlayer.Nonce;
+import sugar.free.sightparser.error.ErrorEvent;
+import sugar.free.sightparser.pipeline.ByteBuf;
+import sugar.free.sightparser.pipeline.DecodeResult;
+import sugar.free.sightparser.pipeline.DuplexHandler;
+import sugar.free.sightparser.pipeline.InboundBuffer;
+import sugar.free.sightparser.pipeline.Pipeline;
+
+public class AuthLayerProcessor implements DuplexHandler {
+
+    private final DecodeResult<AuthLayerMessage> result = new DecodeResult<>();
+
+    @Override
+    public Class<?>[] getInboundMessageTypes() {
+        return new Class<?>[] {InboundBuffer.class};
+    }
+
+    @Override
+    public Class<?>[] getOutboundMessageTypes() {
+        return new Class<?>[] {AuthLayerMessage.class};
+    }
+
+    @Override
+    public void onInboundMessage(Object message, Pipeline pipeline) throws Exception {
+        if (!(message instanceof InboundBuffer)) return;
+        InboundBuffer data = (InboundBuffer) message;
+        while (data.size() >= 37) {
+            int length = data.getUInt16LE(4);
+            if (data.size() < length + 8) return;
+            ByteBuf frame = data.peek(length + 8);
+            data.consume(length + 8);
+            if (AuthLayerMessage.deserialize(frame, pipeline.getLastNonceReceived(),
+                    pipeline.getSessionCrypto() != null ? pipeline.getSessionCrypto().getIncoming() : null, result)) {
+                AuthLayerMessage authLayerMessage = result.getMessage();
+                pipeline.setLastNonceReceived(authLayerMessage.getNonce());
+                pipeline.setCommID(authLayerMessage.getCommID());
+                pipeline.receive(authLayerMessage);
+            } else {
+                ErrorEvent.Type type = result.getError().getType();
+                if (type == ErrorEvent.Type.INVALID_NONCE || type == ErrorEvent.Type.INVALID_AUTH_CRC
+                        || type == ErrorEvent.Type.INVALID_TRAILER) data.clear();
+                pipeline.receive(result.getError());
+            }
+        }
+    }
+
+    @Override
+    public void onOutboundMessage(Object message, Pipeline pipeline) throws Exception {
+        if (!(message instanceof AuthLayerMessage)) return;
+        AuthLayerMessage data = (AuthLayerMessage) message;
+        Nonce nonce = pipeline.getLastNonceSent();
+        if (!(data instanceof CRCAuthLayerMessage)) nonce.increment();
+        pipeline.setLastNonceSent(nonce);
+        pipeline.send(data.serialize(nonce, (message instanceof KeyRequest) ? 1 : pipeline.getCommID(), pipeline.getSessionCrypto() != null ? pipeline.getSessionCrypto().getOutgoing() : null));
+    }
+}
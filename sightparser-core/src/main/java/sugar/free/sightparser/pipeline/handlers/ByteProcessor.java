@@ -0,0 +1,118 @@
+package sugar.free.sightparser.pipeline.handlers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+import sugar.free.sightparser.Transport;
+import sugar.free.sightparser.error.ErrorEvent;
+import sugar.free.sightparser.error.InboundBufferOverflowError;
+import sugar.free.sightparser.pipeline.ByteBuf;
+import sugar.free.sightparser.pipeline.DuplexHandler;
+import sugar.free.sightparser.pipeline.InboundBuffer;
+import sugar.free.sightparser.pipeline.Pipeline;
+import sugar.free.sightparser.pipeline.TraceWriter;
+
+public class ByteProcessor implements DuplexHandler {
+
+    public static final int DEFAULT_CHUNK_SIZE = 110;
+
+    private InboundBuffer inboundBuffer;
+
+    @Getter
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    /**
+     * Guarded by itself, frames are added on the writer thread or on any caller thread while there is none.
+     */
+    private final List<ByteBuf> pendingFrames = new ArrayList<>();
+
+    @Getter
+    private long frameCount = 0;
+    @Getter
+    private long writeCount = 0;
+    @Getter
+    private long flushCount = 0;
+
+    /**
+     * Receives every chunk read and every frame written while set.
+     */
+    @Setter
+    private volatile TraceWriter traceWriter;
+
+    public ByteProcessor(InboundBuffer inboundBuffer) {
+        this.inboundBuffer = inboundBuffer;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize <= 0) throw new IllegalArgumentException("Chunk size has to be positive");
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public Class<?>[] getInboundMessageTypes() {
+        return new Class<?>[] {ByteBuf.class};
+    }
+
+    @Override
+    public Class<?>[] getOutboundMessageTypes() {
+        return new Class<?>[] {ByteBuf.class};
+    }
+
+    /**
+     * Takes the chunk the reader thread has just read, it is only valid until this returns.
+     */
+    @Override
+    public void onInboundMessage(Object message, Pipeline pipeline) throws Exception {
+        if (!(message instanceof ByteBuf)) return;
+        ByteBuf chunk = (ByteBuf) message;
+        TraceWriter traceWriter = this.traceWriter;
+        if (traceWriter != null) traceWriter.inbound(chunk);
+        int maxCapacity = inboundBuffer.getMaxCapacity();
+        int required = inboundBuffer.size() + chunk.size();
+        if (inboundBuffer.write(chunk.array(), chunk.readerIndex(), chunk.size())) pipeline.receive(inboundBuffer);
+        else pipeline.receive(new ErrorEvent(ErrorEvent.Type.INBOUND_BUFFER_OVERFLOW,
+                () -> new InboundBufferOverflowError(required, maxCapacity)));
+    }
+
+    /**
+     * Frames produced on the writer thread are held back until the outbound queue runs empty,
+     * everything else is written right away.
+     */
+    @Override
+    public void onOutboundMessage(Object message, Pipeline pipeline) throws Exception {
+        if (!(message instanceof ByteBuf)) return;
+        TraceWriter traceWriter = this.traceWriter;
+        if (traceWriter != null) traceWriter.outbound((ByteBuf) message);
+        synchronized (pendingFrames) {
+            pendingFrames.add((ByteBuf) message);
+            frameCount++;
+            if (!pipeline.getOutboundQueue().isWriterThread()) flush(pipeline);
+        }
+    }
+
+    /**
+     * Writes all pending frames one after another straight from their backing arrays,
+     * in chunks of at most {@link #getChunkSize()} bytes, followed by a single flush.
+     */
+    public void flush(Pipeline pipeline) throws IOException {
+        synchronized (pendingFrames) {
+            if (pendingFrames.size() == 0) return;
+            try {
+                Transport transport = pipeline.getTransport();
+                for (ByteBuf frame : pendingFrames) {
+                    for (int position = 0; position < frame.size(); position += chunkSize) {
+                        frame.writeTo(transport, position, Math.min(chunkSize, frame.size() - position));
+                        writeCount++;
+                    }
+                }
+                transport.flush();
+                flushCount++;
+            } finally {
+                pendingFrames.clear();
+            }
+        }
+    }
+
+}
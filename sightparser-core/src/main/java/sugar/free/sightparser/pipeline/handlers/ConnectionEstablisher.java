@@ -8,6 +8,11 @@ import sugar.free.sightparser.pipeline.Status;
 
 
 public class ConnectionEstablisher implements InboundHandler {
+    @Override
+    public Class<?>[] getInboundMessageTypes() {
+        return new Class<?>[] {SynAckResponse.class, ConnectMessage.class};
+    }
+
     @Override
     public void onInboundMessage(Object message, Pipeline pipeline) throws Exception {
         if (message instanceof SynAckResponse)
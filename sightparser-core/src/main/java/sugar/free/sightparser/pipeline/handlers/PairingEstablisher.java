@@ -17,10 +17,13 @@ import sugar.free.sightparser.authlayer.VerifyDisplayRequest;
 import sugar.free.sightparser.authlayer.VerifyDisplayResponse;
 import sugar.free.sightparser.crypto.Cryptograph;
 import sugar.free.sightparser.crypto.KeyPair;
-import sugar.free.sightparser.error.DisconnectedError;
+import sugar.free.sightparser.crypto.KeyPairPool;
+import sugar.free.sightparser.error.ErrorEvent;
+import sugar.free.sightparser.logging.Log;
 import sugar.free.sightparser.pipeline.InboundHandler;
 import sugar.free.sightparser.pipeline.Pipeline;
 import sugar.free.sightparser.pipeline.Status;
+import sugar.free.sightparser.telemetry.Telemetry;
 
 public class PairingEstablisher implements InboundHandler {
 
@@ -28,6 +31,12 @@ public class PairingEstablisher implements InboundHandler {
     private KeyPair keyPair;
     private Timer timer = new Timer();
 
+    @Override
+    public Class<?>[] getInboundMessageTypes() {
+        return new Class<?>[] {ConnectionResponse.class, KeyResponse.class, VerifyDisplayResponse.class,
+                VerifyConfirmResponse.class, BindMessage.class};
+    }
+
     @Override
     public void onInboundMessage(Object message, final Pipeline pipeline) throws Exception {
         if (message instanceof ConnectionResponse) {
@@ -51,7 +60,7 @@ public class PairingEstablisher implements InboundHandler {
             PairingStatus pairingStatus = verifyConfirmResponse.getPairingStatus();
             if (pairingStatus == PairingStatus.REJECTED) {
                 pipeline.setStatus(Status.CODE_REJECTED);
-                throw new DisconnectedError();
+                pipeline.receive(ErrorEvent.DISCONNECTED);
             } else if (pairingStatus == PairingStatus.CONFIRMED) {
                 pipeline.setStatus(Status.APP_BINDING);
                 pipeline.send(new BindMessage());
@@ -68,6 +77,7 @@ public class PairingEstablisher implements InboundHandler {
             }
         } else if (message instanceof BindMessage) {
             pipeline.setStatus(Status.CONNECTED);
+            pipeline.removeHandler(this);
         }
     }
 
@@ -79,8 +89,16 @@ public class PairingEstablisher implements InboundHandler {
         return randomBytes;
     }
 
-    private KeyPair getKeyPair() {
-        if (keyPair == null) keyPair = Cryptograph.generateRSAKey();
+    private KeyPair getKeyPair() throws InterruptedException {
+        if (keyPair == null) {
+            long hits = KeyPairPool.getHits();
+            long waits = KeyPairPool.getWaits();
+            keyPair = KeyPairPool.take();
+            Log.d("SightService", "KEY PAIR: hits " + KeyPairPool.getHits() + " waits " + KeyPairPool.getWaits()
+                    + " misses " + KeyPairPool.getMisses() + " generation time " + KeyPairPool.getLastGenerationTime() + "ms");
+            Telemetry.count("RSA Key Pair Provided", "Source", KeyPairPool.getHits() != hits ? "Hit"
+                    : KeyPairPool.getWaits() != waits ? "Wait" : "Miss");
+        }
         return keyPair;
     }
 
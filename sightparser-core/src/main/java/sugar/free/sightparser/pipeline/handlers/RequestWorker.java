@@ -0,0 +1,296 @@
+package sugar.free.sightparser.pipeline.handlers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import sugar.free.sightparser.applayer.descriptors.Service;
+import sugar.free.sightparser.applayer.messages.AppLayerMessage;
+import sugar.free.sightparser.applayer.messages.connection.ActivateServiceMessage;
+import sugar.free.sightparser.applayer.messages.connection.ServiceChallengeMessage;
+import sugar.free.sightparser.error.ErrorEvent;
+import sugar.free.sightparser.error.InvalidServicePasswordError;
+import sugar.free.sightparser.error.OutboundQueueFullError;
+import sugar.free.sightparser.handling.MessagePriority;
+import sugar.free.sightparser.handling.MessageRequest;
+import sugar.free.sightparser.handling.MessageStatus;
+import sugar.free.sightparser.pipeline.DuplexHandler;
+import sugar.free.sightparser.pipeline.Pipeline;
+
+/**
+ * Sends app layer requests one at a time, the request in flight is kept at the head of the queue.
+ * Whenever it has been answered the most urgent queued request follows, see {@link MessagePriority},
+ * requests of the same class are sent in the order they were queued.
+ * A coalescable request that is identical to one already queued or in flight is not sent again,
+ * it is answered along with the earlier one, see {@link AppLayerMessage#isCoalescable()}.
+ */
+public class RequestWorker implements DuplexHandler {
+
+    /**
+     * Milliseconds after which a background request is no longer overtaken by interactive ones.
+     */
+    public static final long STARVATION_TIMEOUT = 5000;
+
+    private static final ErrorEvent OUTBOUND_QUEUE_FULL = new ErrorEvent(ErrorEvent.Type.OUTBOUND_QUEUE_FULL,
+            () -> new OutboundQueueFullError(Pipeline.OUTBOUND_QUEUE_CAPACITY));
+
+    private final List<MessageRequest> messageRequests = new ArrayList<>();
+    private final long[] requestCounts = new long[MessagePriority.values().length];
+    private final long[] totalQueueWaits = new long[MessagePriority.values().length];
+    private final long[] maxQueueWaits = new long[MessagePriority.values().length];
+    private long coalescedCount = 0;
+
+    @Override
+    public Class<?>[] getInboundMessageTypes() {
+        return new Class<?>[] {AppLayerMessage.class, ErrorEvent.class};
+    }
+
+    @Override
+    public Class<?>[] getOutboundMessageTypes() {
+        return new Class<?>[] {ErrorEvent.class};
+    }
+
+    @Override
+    public void onInboundMessage(final Object message, Pipeline pipeline) throws Exception {
+        synchronized (messageRequests) {
+            if (messageRequests.size() == 0) return;
+            if (isDisconnect(message)) {
+                failAll((ErrorEvent) message);
+                return;
+            }
+            MessageRequest messageRequest = messageRequests.get(0);
+            if (message instanceof ErrorEvent) {
+                sendError(messageRequest, (ErrorEvent) message);
+                messageRequests.remove(messageRequest);
+                requestNext(pipeline);
+                return;
+            }
+            if (messageRequest.getMessageStatus() == MessageStatus.ACTIVATING_SERVICE) {
+                Service service = messageRequest.getAppLayerMessage().getService();
+                if (message instanceof ServiceChallengeMessage) {
+                    byte[] password = service.getServicePasswordHasher().hash(((ServiceChallengeMessage) message).getRandomData());
+                    ActivateServiceMessage activateService = new ActivateServiceMessage();
+                    activateService.setServicePassword(password);
+                    activateService.setServiceID(service.getServiceID());
+                    activateService.setVersion(service.getVersion());
+                    send(pipeline, messageRequest, activateService);
+                } else if (message instanceof ActivateServiceMessage) {
+                    pipeline.getActivatedServices().add(service);
+                    sendRequest(pipeline, messageRequest);
+                }
+            } else if (messageRequest.getMessageStatus() == MessageStatus.PENDING && message instanceof AppLayerMessage) {
+                sendMessage(messageRequest, (AppLayerMessage) message);
+                messageRequests.remove(messageRequest);
+                requestNext(pipeline);
+            }
+        }
+    }
+
+    private static boolean isDisconnect(Object message) {
+        return message instanceof ErrorEvent && ((ErrorEvent) message).getType() == ErrorEvent.Type.DISCONNECTED;
+    }
+
+    private void failAll(ErrorEvent errorEvent) {
+        for (MessageRequest messageRequest : new ArrayList<>(messageRequests)) {
+            sendError(messageRequest, errorEvent);
+            messageRequests.remove(messageRequest);
+        }
+    }
+
+    /**
+     * Clients expect exceptions, so this is where the error event becomes one.
+     */
+    private void sendError(MessageRequest messageRequest, ErrorEvent errorEvent) {
+        Exception exception = errorEvent.toException();
+        try {
+            messageRequest.getRequestCallback().onError(exception);
+        } catch (Exception e) {
+        }
+        for (MessageRequest coalescedRequest : messageRequest.getCoalescedRequests()) {
+            try {
+                coalescedRequest.getRequestCallback().onError(exception);
+            } catch (Exception e) {
+            }
+        }
+    }
+
+    private void sendMessage(MessageRequest messageRequest, AppLayerMessage message) {
+        try {
+            messageRequest.getRequestCallback().onMessage(message);
+        } catch (Exception e) {
+        }
+        for (MessageRequest coalescedRequest : messageRequest.getCoalescedRequests()) {
+            try {
+                coalescedRequest.getRequestCallback().onMessage(message);
+            } catch (Exception e) {
+            }
+        }
+    }
+
+    private void requestNext(Pipeline pipeline) {
+        MessageRequest messageRequest = selectNext();
+        if (messageRequest != null) sendRequest(pipeline, messageRequest);
+    }
+
+    private void sendRequest(Pipeline pipeline, MessageRequest messageRequest) {
+        Service service = messageRequest.getAppLayerMessage().getService();
+        if (!pipeline.getActivatedServices().contains(service)) {
+            messageRequest.setMessageStatus(MessageStatus.ACTIVATING_SERVICE);
+            if (service.getServicePassword() != null) {
+                if (service.getServicePassword().length() != 16)
+                    pipeline.receive(invalidServicePassword(messageRequest));
+                else {
+                    ServiceChallengeMessage serviceChallenge = new ServiceChallengeMessage();
+                    serviceChallenge.setServiceID(service.getServiceID());
+                    serviceChallenge.setVersion(service.getVersion());
+                    send(pipeline, messageRequest, serviceChallenge);
+                }
+            } else {
+                ActivateServiceMessage activateService = new ActivateServiceMessage();
+                activateService.setServiceID(service.getServiceID());
+                activateService.setVersion(service.getVersion());
+                activateService.setServicePassword(new byte[16]);
+                send(pipeline, messageRequest, activateService);
+            }
+        } else {
+            messageRequest.setMessageStatus(MessageStatus.PENDING);
+            if (service.getServicePassword() != null && service.getServicePassword().length() != 16)
+                pipeline.receive(invalidServicePassword(messageRequest));
+            else send(pipeline, messageRequest, messageRequest.getAppLayerMessage());
+        }
+    }
+
+    /**
+     * Fails the request a message was sent for if the outbound queue dropped it, instead of waiting for an answer that never comes.
+     */
+    private void send(Pipeline pipeline, MessageRequest messageRequest, Object message) {
+        if (pipeline.send(message)) return;
+        sendError(messageRequest, OUTBOUND_QUEUE_FULL);
+        messageRequests.remove(messageRequest);
+        requestNext(pipeline);
+    }
+
+    /**
+     * Moves the request to send next to the head of the queue, dropping requests whose client has gone.
+     */
+    private MessageRequest selectNext() {
+        long now = System.nanoTime() / 1000000;
+        while (messageRequests.size() != 0) {
+            int selected = 0;
+            int selectedRank = rank(messageRequests.get(0), now);
+            for (int i = 1; i < messageRequests.size(); i++) {
+                int rank = rank(messageRequests.get(i), now);
+                if (rank < selectedRank) {
+                    selected = i;
+                    selectedRank = rank;
+                }
+            }
+            MessageRequest messageRequest = messageRequests.remove(selected);
+            if (!isAlive(messageRequest)) continue;
+            messageRequests.add(0, messageRequest);
+            recordQueueWait(messageRequest, now);
+            return messageRequest;
+        }
+        return null;
+    }
+
+    private static boolean isAlive(MessageRequest messageRequest) {
+        if (messageRequest.getRequestCallback().isAlive()) return true;
+        for (MessageRequest coalescedRequest : messageRequest.getCoalescedRequests())
+            if (coalescedRequest.getRequestCallback().isAlive()) return true;
+        return false;
+    }
+
+    /**
+     * @return a queued or in flight request the given one can share the response of, as long as it is at least as urgent
+     */
+    private MessageRequest findIdentical(MessageRequest messageRequest) {
+        AppLayerMessage message = messageRequest.getAppLayerMessage();
+        if (!message.isCoalescable()) return null;
+        for (MessageRequest queuedRequest : messageRequests) {
+            AppLayerMessage queuedMessage = queuedRequest.getAppLayerMessage();
+            if (queuedMessage.getClass() == message.getClass()
+                    && queuedMessage.getPriority().ordinal() <= message.getPriority().ordinal())
+                return queuedRequest;
+        }
+        return null;
+    }
+
+    private static int rank(MessageRequest messageRequest, long now) {
+        MessagePriority priority = messageRequest.getAppLayerMessage().getPriority();
+        if (priority == MessagePriority.BACKGROUND && now - messageRequest.getQueuedAt() >= STARVATION_TIMEOUT)
+            return MessagePriority.INTERACTIVE.ordinal();
+        return priority.ordinal();
+    }
+
+    private void recordQueueWait(MessageRequest messageRequest, long now) {
+        int priority = messageRequest.getAppLayerMessage().getPriority().ordinal();
+        long queueWait = now - messageRequest.getQueuedAt();
+        requestCounts[priority]++;
+        totalQueueWaits[priority] += queueWait;
+        if (queueWait > maxQueueWaits[priority]) maxQueueWaits[priority] = queueWait;
+    }
+
+    /**
+     * @return how many requests were answered along with an identical one instead of being sent
+     */
+    public long getCoalescedCount() {
+        synchronized (messageRequests) {
+            return coalescedCount;
+        }
+    }
+
+    public long getRequestCount(MessagePriority priority) {
+        synchronized (messageRequests) {
+            return requestCounts[priority.ordinal()];
+        }
+    }
+
+    /**
+     * @return the average time in milliseconds requests of a class waited in the queue before being sent
+     */
+    public long getAverageQueueWait(MessagePriority priority) {
+        synchronized (messageRequests) {
+            long count = requestCounts[priority.ordinal()];
+            return count == 0 ? 0 : totalQueueWaits[priority.ordinal()] / count;
+        }
+    }
+
+    public long getMaxQueueWait(MessagePriority priority) {
+        synchronized (messageRequests) {
+            return maxQueueWaits[priority.ordinal()];
+        }
+    }
+
+    @Override
+    public void onOutboundMessage(Object message, Pipeline pipeline) throws Exception {
+        synchronized (messageRequests) {
+            if (messageRequests.size() == 0) return;
+            if (isDisconnect(message)) {
+                failAll((ErrorEvent) message);
+                return;
+            }
+            MessageRequest messageRequest = messageRequests.get(0);
+            if (messageRequest.getMessageStatus() == MessageStatus.PENDING && message instanceof ErrorEvent)
+                sendError(messageRequest, (ErrorEvent) message);
+        }
+    }
+
+    private static ErrorEvent invalidServicePassword(MessageRequest messageRequest) {
+        Class<? extends AppLayerMessage> clazz = messageRequest.getAppLayerMessage().getClass();
+        return new ErrorEvent(ErrorEvent.Type.INVALID_SERVICE_PASSWORD, () -> new InvalidServicePasswordError(clazz, (short) 0x99F0));
+    }
+
+    public void requestMessage(Pipeline pipeline, MessageRequest messageRequest) {
+        synchronized (messageRequests) {
+            MessageRequest identicalRequest = findIdentical(messageRequest);
+            if (identicalRequest != null) {
+                identicalRequest.getCoalescedRequests().add(messageRequest);
+                coalescedCount++;
+                return;
+            }
+            messageRequest.setQueuedAt(System.nanoTime() / 1000000);
+            messageRequests.add(messageRequest);
+            if (messageRequests.size() == 1) requestNext(pipeline);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package sugar.free.sightparser.telemetry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Aggregated count of one event with fixed attributes, incrementing it is all the hot path pays.
+ */
+public final class Counter {
+
+    final String event;
+    final String[] attributes;
+    private final AtomicLong count = new AtomicLong();
+
+    Counter(String event, String[] attributes) {
+        this.event = event;
+        this.attributes = attributes;
+    }
+
+    public void increment() {
+        count.incrementAndGet();
+    }
+
+    long drain() {
+        return count.getAndSet(0);
+    }
+}
@@ -0,0 +1,49 @@
+package sugar.free.sightparser.telemetry;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import sugar.free.sightparser.logging.Log;
+
+/**
+ * Appends one line per changed counter to a local file, meant for test rigs without analytics.
+ */
+public class FileTelemetrySink implements TelemetrySink {
+
+    private final File file;
+    private StringBuilder pending = new StringBuilder();
+
+    public FileTelemetrySink(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public void report(String event, String[] attributes, long count) {
+        pending.append(System.currentTimeMillis()).append('\t').append(event);
+        for (int i = 0; i < attributes.length; i += 2)
+            pending.append('\t').append(attributes[i]).append('=').append(attributes[i + 1]);
+        pending.append('\t').append(count).append('\n');
+    }
+
+    @Override
+    public void flush() {
+        if (pending.length() == 0) return;
+        Writer writer = null;
+        try {
+            writer = new FileWriter(file, true);
+            writer.write(pending.toString());
+            pending = new StringBuilder();
+        } catch (IOException e) {
+            Log.d("SightService", "Failed to write telemetry: " + e.getMessage());
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package sugar.free.sightparser.telemetry;
+
+public class NoopTelemetrySink implements TelemetrySink {
+
+    @Override
+    public void report(String event, String[] attributes, long count) {
+    }
+
+    @Override
+    public void flush() {
+    }
+}
@@ -0,0 +1,72 @@
+package sugar.free.sightparser.telemetry;
+
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts analytics events in memory and hands the aggregated counts to a {@link TelemetrySink} on a background timer.
+ * Callers on hot paths should keep the {@link Counter} returned by {@link #counter(String, String...)},
+ * then an event costs a single atomic increment.
+ */
+public final class Telemetry {
+
+    public static final long FLUSH_INTERVAL = 60000;
+
+    private static final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private static volatile TelemetrySink sink = new NoopTelemetrySink();
+    private static Timer timer;
+
+    private Telemetry() {
+    }
+
+    public static void setSink(TelemetrySink telemetrySink) {
+        sink = telemetrySink;
+    }
+
+    /**
+     * @param attributes alternating attribute names and values
+     */
+    public static Counter counter(String event, String... attributes) {
+        StringBuilder key = new StringBuilder(event);
+        for (String attribute : attributes) key.append('\u0000').append(attribute);
+        String keyString = key.toString();
+        Counter counter = counters.get(keyString);
+        if (counter == null) {
+            Counter created = new Counter(event, attributes.clone());
+            counter = counters.putIfAbsent(keyString, created);
+            if (counter == null) {
+                counter = created;
+                startTimer();
+            }
+        }
+        return counter;
+    }
+
+    public static void count(String event, String... attributes) {
+        counter(event, attributes).increment();
+    }
+
+    private static synchronized void startTimer() {
+        if (timer != null) return;
+        timer = new Timer("Telemetry", true);
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, FLUSH_INTERVAL, FLUSH_INTERVAL);
+    }
+
+    /**
+     * Reports everything counted since the last flush, normally called by the timer.
+     */
+    public static synchronized void flush() {
+        TelemetrySink telemetrySink = sink;
+        for (Counter counter : counters.values()) {
+            long count = counter.drain();
+            if (count != 0) telemetrySink.report(counter.event, counter.attributes, count);
+        }
+        telemetrySink.flush();
+    }
+}
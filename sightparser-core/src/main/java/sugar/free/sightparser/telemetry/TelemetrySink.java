@@ -0,0 +1,16 @@
+package sugar.free.sightparser.telemetry;
+
+public interface TelemetrySink {
+
+    /**
+     * Called on the telemetry thread for every counter that changed since the last flush.
+     * @param attributes alternating attribute names and values
+     */
+    void report(String event, String[] attributes, long count);
+
+    /**
+     * Called after all counters of a flush have been reported.
+     */
+    void flush();
+
+}
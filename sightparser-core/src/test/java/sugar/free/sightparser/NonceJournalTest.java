@@ -0,0 +1,164 @@
+package sugar.free.sightparser;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import sugar.free.sightparser.authlayer.Nonce;
+import sugar.free.sightparser.error.NonceJournalLostException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class NonceJournalTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() {
+        file = new File(temporaryFolder.getRoot(), "nonces");
+    }
+
+    @Test
+    public void missingJournalIsNotLoaded() throws IOException {
+        assertFalse(new NonceJournal(file).load());
+    }
+
+    @Test
+    public void restoresState() throws IOException {
+        NonceJournal journal = new NonceJournal(file);
+        journal.setCommID(7);
+        journal.reserve(nonce(5));
+        journal.setLastNonceReceived(nonce(3));
+        journal.flush(nonce(5));
+        NonceJournal loaded = load();
+        assertEquals(7, loaded.getCommID());
+        assertEquals(nonce(5), loaded.getReservedNonceSent());
+        assertEquals(nonce(3), loaded.getLastNonceReceived());
+    }
+
+    @Test
+    public void reservesAheadOfNonceSent() throws IOException {
+        NonceJournal journal = new NonceJournal(file);
+        journal.reserve(nonce(1));
+        assertEquals(nonce(1 + NonceJournal.RESERVATION_SIZE), load().getReservedNonceSent());
+    }
+
+    @Test
+    public void newestSlotWins() throws IOException {
+        NonceJournal journal = new NonceJournal(file);
+        journal.setCommID(1);
+        journal.flush(nonce(10));
+        assertEquals(nonce(10), load().getReservedNonceSent());
+        journal.flush(nonce(20));
+        assertEquals(nonce(20), load().getReservedNonceSent());
+    }
+
+    @Test
+    public void continuesSequenceAfterLoad() throws IOException {
+        NonceJournal journal = new NonceJournal(file);
+        journal.setCommID(1);
+        journal.flush(nonce(10));
+        journal.flush(nonce(20));
+        NonceJournal loaded = load();
+        loaded.flush(nonce(30));
+        assertEquals(nonce(30), load().getReservedNonceSent());
+    }
+
+    @Test
+    public void tornNewestSlotFallsBackToPrevious() throws IOException {
+        NonceJournal journal = new NonceJournal(file);
+        journal.setCommID(1);
+        journal.flush(nonce(10));
+        journal.flush(nonce(20));
+        corrupt(1);
+        NonceJournal loaded = load();
+        assertEquals(1, loaded.getCommID());
+        assertEquals(nonce(10), loaded.getReservedNonceSent());
+    }
+
+    @Test
+    public void staleSlotIsIgnoredWhenNewestIsIntact() throws IOException {
+        NonceJournal journal = new NonceJournal(file);
+        journal.setCommID(1);
+        journal.flush(nonce(10));
+        journal.flush(nonce(20));
+        corrupt(0);
+        assertEquals(nonce(20), load().getReservedNonceSent());
+    }
+
+    @Test
+    public void truncatedNewestSlotFallsBackToPrevious() throws IOException {
+        NonceJournal journal = new NonceJournal(file);
+        journal.setCommID(1);
+        journal.flush(nonce(10));
+        journal.flush(nonce(20));
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(randomAccessFile.length() - 1);
+        } finally {
+            randomAccessFile.close();
+        }
+        assertEquals(nonce(10), load().getReservedNonceSent());
+    }
+
+    @Test(expected = NonceJournalLostException.class)
+    public void journalWithoutValidRecordIsLost() throws IOException {
+        NonceJournal journal = new NonceJournal(file);
+        journal.setCommID(1);
+        journal.flush(nonce(10));
+        corrupt(0);
+        corrupt(1);
+        load();
+    }
+
+    @Test
+    public void resetDeletesJournal() throws IOException {
+        NonceJournal journal = new NonceJournal(file);
+        journal.setCommID(1);
+        journal.reset();
+        assertFalse(file.exists());
+        assertEquals(0, journal.getCommID());
+        assertTrue(journal.getReservedNonceSent().isZero());
+        assertNull(journal.getLastNonceReceived());
+    }
+
+    private NonceJournal load() throws IOException {
+        NonceJournal journal = new NonceJournal(file);
+        assertTrue(journal.load());
+        return journal;
+    }
+
+    /**
+     * Flips a byte in the middle of a slot, the n-th write goes to slot n % 2.
+     */
+    private void corrupt(int slot) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            long recordSize = randomAccessFile.length() / 2;
+            long position = slot * recordSize + recordSize / 2;
+            randomAccessFile.seek(position);
+            int b = randomAccessFile.read();
+            randomAccessFile.seek(position);
+            randomAccessFile.write(b ^ 0xFF);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private static Nonce nonce(int value) {
+        Nonce nonce = new Nonce();
+        nonce.add(value);
+        return nonce;
+    }
+}
@@ -0,0 +1,113 @@
+package sugar.free.sightparser.authlayer;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import sugar.free.sightparser.pipeline.ByteBuf;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the counter against the BigInteger arithmetic it replaced.
+ */
+public class NonceTest {
+
+    private static final BigInteger MODULUS = BigInteger.ONE.shiftLeft(104);
+    private static final BigInteger LOW_MAX = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void incrementCarriesIntoHighPart() {
+        Nonce nonce = nonce(LOW_MAX);
+        nonce.increment();
+        assertEquals(LOW_MAX.add(BigInteger.ONE), value(nonce));
+    }
+
+    @Test
+    public void incrementCrossesSignBitOfLowPart() {
+        BigInteger signBit = BigInteger.ONE.shiftLeft(63);
+        Nonce nonce = nonce(signBit.subtract(BigInteger.ONE));
+        nonce.increment();
+        assertEquals(signBit, value(nonce));
+    }
+
+    @Test
+    public void incrementWrapsAround() {
+        Nonce nonce = nonce(MODULUS.subtract(BigInteger.ONE));
+        nonce.increment();
+        assertTrue(nonce.isZero());
+    }
+
+    @Test
+    public void addCarriesIntoHighPart() {
+        for (long amount : new long[] {1, 2, 1024, Long.MAX_VALUE}) {
+            Nonce nonce = nonce(LOW_MAX);
+            nonce.add(amount);
+            assertEquals("Amount " + amount, LOW_MAX.add(BigInteger.valueOf(amount)), value(nonce));
+        }
+    }
+
+    @Test
+    public void addMatchesBigInteger() {
+        for (int i = 0; i < 1000; i++) {
+            BigInteger start = new BigInteger(104, random);
+            long amount = random.nextInt(1 << 20);
+            Nonce nonce = nonce(start);
+            nonce.add(amount);
+            assertEquals(start.add(BigInteger.valueOf(amount)).mod(MODULUS), value(nonce));
+        }
+    }
+
+    @Test
+    public void compareToMatchesBigInteger() {
+        BigInteger[] values = {BigInteger.ZERO, BigInteger.ONE, BigInteger.ONE.shiftLeft(63), LOW_MAX,
+                LOW_MAX.add(BigInteger.ONE), MODULUS.subtract(BigInteger.ONE)};
+        for (BigInteger a : values) {
+            for (BigInteger b : values) {
+                assertEquals(a + " " + b, Integer.signum(a.compareTo(b)), Integer.signum(nonce(a).compareTo(nonce(b))));
+                assertEquals(a.equals(b), nonce(a).equals(nonce(b)));
+            }
+        }
+    }
+
+    @Test
+    public void readsBigIntegerBytes() {
+        BigInteger value = BigInteger.ONE.shiftLeft(103).add(BigInteger.valueOf(5));
+        byte[] bytes = value.toByteArray();
+        assertEquals(Nonce.LENGTH + 1, bytes.length);
+        assertEquals(value, value(Nonce.fromBytesBE(bytes)));
+    }
+
+    @Test
+    public void writesLittleEndian() {
+        BigInteger value = new BigInteger(104, random);
+        Nonce nonce = nonce(value);
+        ByteBuf byteBuf = new ByteBuf(Nonce.LENGTH);
+        nonce.putLE(byteBuf);
+        assertArrayEquals(nonce.getBytesLE(), byteBuf.getBytes());
+        assertEquals(nonce, Nonce.readLE(ByteBuf.wrap(nonce.getBytesLE())));
+        assertEquals(value, new BigInteger(1, nonce.getBytesBE()));
+    }
+
+    @Test
+    public void newNonceIsZero() {
+        assertTrue(new Nonce().isZero());
+        Nonce nonce = new Nonce();
+        nonce.increment();
+        assertFalse(nonce.isZero());
+    }
+
+    private static Nonce nonce(BigInteger value) {
+        return Nonce.fromBytesBE(value.toByteArray());
+    }
+
+    private static BigInteger value(Nonce nonce) {
+        return new BigInteger(1, nonce.getBytesBE());
+    }
+}
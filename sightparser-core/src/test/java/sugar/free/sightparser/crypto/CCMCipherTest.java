@@ -0,0 +1,136 @@
+package sugar.free.sightparser.crypto;
+
+import org.junit.Test;
+import org.spongycastle.crypto.engines.TwofishEngine;
+import org.spongycastle.crypto.modes.CCMBlockCipher;
+import org.spongycastle.crypto.params.AEADParameters;
+import org.spongycastle.crypto.params.KeyParameter;
+import org.spongycastle.util.encoders.Hex;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The pump uses standard CCM with Twofish, an 8 byte tag and a 13 byte nonce inside a 21 byte header,
+ * so the CCM mode of the crypto library serves as the reference.
+ */
+public class CCMCipherTest {
+
+    private static final int HEADER_LENGTH = 21;
+    private static final int NONCE_OFFSET = 8;
+    private static final int TAG_LENGTH = 8;
+    private static final int[] PAYLOAD_LENGTHS = {0, 1, 15, 16, 17, 31, 32, 33, 100, 255};
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void sealMatchesKnownVector() {
+        byte[] key = Hex.decode("000102030405060708090a0b0c0d0e0f");
+        byte[] header = Hex.decode("20dd0400ffff000001000000000000000000000000");
+        byte[] payload = Hex.decode("0102030405060708090a0b0c0d0e0f101112131415");
+        byte[] frame = frame(header, payload);
+        new CCMCipher(key).seal(frame, 0, HEADER_LENGTH, NONCE_OFFSET, payload.length);
+        assertArrayEquals(Hex.decode("c6bccd2e912affacf683f4bc3785a67c1a8712bfefe74d3fffa112f59c"),
+                Arrays.copyOfRange(frame, HEADER_LENGTH, frame.length));
+    }
+
+    @Test
+    public void sealMatchesReference() throws Exception {
+        for (int payloadLength : PAYLOAD_LENGTHS) {
+            byte[] key = randomBytes(16);
+            byte[] header = randomBytes(HEADER_LENGTH);
+            byte[] payload = randomBytes(payloadLength);
+            byte[] frame = frame(header, payload);
+            new CCMCipher(key).seal(frame, 0, HEADER_LENGTH, NONCE_OFFSET, payloadLength);
+            assertArrayEquals("Payload length " + payloadLength, reference(key, header, payload),
+                    Arrays.copyOfRange(frame, HEADER_LENGTH, frame.length));
+        }
+    }
+
+    @Test
+    public void sealMatchesPreviousImplementation() {
+        for (int payloadLength : PAYLOAD_LENGTHS) {
+            byte[] key = randomBytes(16);
+            byte[] header = randomBytes(HEADER_LENGTH);
+            byte[] payload = randomBytes(payloadLength);
+            byte[] nonce = Arrays.copyOfRange(header, NONCE_OFFSET, NONCE_OFFSET + 13);
+            byte[] frame = frame(header, payload);
+            new CCMCipher(key).seal(frame, 0, HEADER_LENGTH, NONCE_OFFSET, payloadLength);
+            assertArrayEquals("Payload length " + payloadLength, Cryptograph.encryptDataCTR(payload, key, nonce),
+                    Arrays.copyOfRange(frame, HEADER_LENGTH, HEADER_LENGTH + payloadLength));
+            assertArrayEquals("Payload length " + payloadLength, Cryptograph.produceCCMTag(nonce, payload, header, key),
+                    Arrays.copyOfRange(frame, HEADER_LENGTH + payloadLength, frame.length));
+        }
+    }
+
+    @Test
+    public void openRestoresPayload() {
+        for (int payloadLength : PAYLOAD_LENGTHS) {
+            byte[] key = randomBytes(16);
+            byte[] header = randomBytes(HEADER_LENGTH);
+            byte[] payload = randomBytes(payloadLength);
+            byte[] frame = frame(header, payload);
+            CCMCipher cipher = new CCMCipher(key);
+            cipher.seal(frame, 0, HEADER_LENGTH, NONCE_OFFSET, payloadLength);
+            assertTrue(cipher.open(frame, 0, HEADER_LENGTH, NONCE_OFFSET, payloadLength));
+            assertArrayEquals(payload, Arrays.copyOfRange(frame, HEADER_LENGTH, HEADER_LENGTH + payloadLength));
+        }
+    }
+
+    @Test
+    public void openRejectsTamperedFrame() {
+        byte[] key = randomBytes(16);
+        byte[] header = randomBytes(HEADER_LENGTH);
+        byte[] payload = randomBytes(40);
+        byte[] sealed = frame(header, payload);
+        CCMCipher cipher = new CCMCipher(key);
+        cipher.seal(sealed, 0, HEADER_LENGTH, NONCE_OFFSET, payload.length);
+        for (int position : new int[] {0, NONCE_OFFSET, HEADER_LENGTH, HEADER_LENGTH + 39, sealed.length - 1}) {
+            byte[] frame = sealed.clone();
+            frame[position] ^= 0x01;
+            assertFalse("Position " + position, cipher.open(frame, 0, HEADER_LENGTH, NONCE_OFFSET, payload.length));
+        }
+    }
+
+    @Test
+    public void sealWorksAtAnOffset() throws Exception {
+        byte[] key = randomBytes(16);
+        byte[] header = randomBytes(HEADER_LENGTH);
+        byte[] payload = randomBytes(50);
+        byte[] frame = new byte[5 + HEADER_LENGTH + payload.length + TAG_LENGTH];
+        System.arraycopy(header, 0, frame, 5, HEADER_LENGTH);
+        System.arraycopy(payload, 0, frame, 5 + HEADER_LENGTH, payload.length);
+        new CCMCipher(key).seal(frame, 5, HEADER_LENGTH, 5 + NONCE_OFFSET, payload.length);
+        assertArrayEquals(reference(key, header, payload), Arrays.copyOfRange(frame, 5 + HEADER_LENGTH, frame.length));
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] frame(byte[] header, byte[] payload) {
+        byte[] frame = new byte[header.length + payload.length + TAG_LENGTH];
+        System.arraycopy(header, 0, frame, 0, header.length);
+        System.arraycopy(payload, 0, frame, header.length, payload.length);
+        return frame;
+    }
+
+    /**
+     * @return the ciphertext followed by the tag
+     */
+    private static byte[] reference(byte[] key, byte[] header, byte[] payload) throws Exception {
+        byte[] nonce = Arrays.copyOfRange(header, NONCE_OFFSET, NONCE_OFFSET + 13);
+        CCMBlockCipher cipher = new CCMBlockCipher(new TwofishEngine());
+        cipher.init(true, new AEADParameters(new KeyParameter(key), TAG_LENGTH * 8, nonce, header));
+        byte[] output = new byte[cipher.getOutputSize(payload.length)];
+        int length = cipher.processBytes(payload, 0, payload.length, output, 0);
+        cipher.doFinal(output, length);
+        return output;
+    }
+}
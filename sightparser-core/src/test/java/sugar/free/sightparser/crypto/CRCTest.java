@@ -0,0 +1,71 @@
+package sugar.free.sightparser.crypto;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import sugar.free.sightparser.pipeline.ByteBuf;
+
+import static org.junit.Assert.assertEquals;
+
+public class CRCTest {
+
+    private final Random random = new Random(42);
+
+    /**
+     * Check value of CRC-16/MCRF4XX, which matches the table's parameters.
+     */
+    @Test
+    public void matchesKnownVector() {
+        assertEquals(0x6F91, Cryptograph.calculateCRC("123456789".getBytes()));
+    }
+
+    @Test
+    public void emptyInputYieldsInitialValue() {
+        assertEquals(CRC.INITIAL, Cryptograph.calculateCRC(new byte[0]));
+    }
+
+    @Test
+    public void matchesPreviousImplementation() {
+        for (int length = 0; length < 100; length++) {
+            byte[] bytes = randomBytes(length);
+            assertEquals("Length " + length, previous(bytes), Cryptograph.calculateCRC(bytes));
+        }
+    }
+
+    @Test
+    public void updatesIncrementally() {
+        byte[] bytes = randomBytes(97);
+        int expected = previous(bytes);
+        for (int split = 0; split <= bytes.length; split++) {
+            int crc = CRC.update(CRC.INITIAL, bytes, 0, split);
+            crc = CRC.update(crc, bytes, split, bytes.length - split);
+            assertEquals("Split " + split, expected, crc);
+        }
+    }
+
+    @Test
+    public void coversByteBufRange() {
+        byte[] bytes = randomBytes(64);
+        byte[] range = new byte[40];
+        System.arraycopy(bytes, 11, range, 0, range.length);
+        assertEquals(previous(range), Cryptograph.calculateCRC(ByteBuf.wrap(bytes), 11, range.length));
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * The byte at a time loop the slicing tables replaced.
+     */
+    private static int previous(byte[] bytes) {
+        int crc = 0xffff;
+        for (byte b : bytes) {
+            crc = (crc >>> 8) ^ CRC.table[(crc ^ b) & 0xff];
+        }
+        return crc;
+    }
+}
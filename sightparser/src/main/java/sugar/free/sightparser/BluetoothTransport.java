@@ -0,0 +1,48 @@
+package sugar.free.sightparser;
+
+import android.annotation.SuppressLint;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothSocket;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Insecure RFCOMM connection to the pump using the serial port profile.
+ * The socket is kept after a failed connect and reused by the next attempt.
+ */
+public class BluetoothTransport extends StreamTransport {
+
+    public static final UUID SERIAL_PORT_UUID = UUID.fromString("00001101-0000-1000-8000-00805f9b34fb");
+    public static final int DEFAULT_MTU = 110;
+
+    private final BluetoothDevice bluetoothDevice;
+    private volatile BluetoothSocket bluetoothSocket;
+
+    public BluetoothTransport(BluetoothDevice bluetoothDevice) {
+        super(DEFAULT_MTU);
+        this.bluetoothDevice = bluetoothDevice;
+    }
+
+    @SuppressLint("MissingPermission")
+    @Override
+    public void connect() throws IOException {
+        if (bluetoothSocket == null)
+            bluetoothSocket = bluetoothDevice.createInsecureRfcommSocketToServiceRecord(SERIAL_PORT_UUID);
+        bluetoothSocket.connect();
+        setStreams(bluetoothSocket.getInputStream(), bluetoothSocket.getOutputStream());
+    }
+
+    @Override
+    public boolean isConnected() {
+        BluetoothSocket socket = bluetoothSocket;
+        return socket != null && socket.isConnected();
+    }
+
+    @Override
+    public void close() throws IOException {
+        BluetoothSocket socket = bluetoothSocket;
+        bluetoothSocket = null;
+        if (socket != null) socket.close();
+    }
+}
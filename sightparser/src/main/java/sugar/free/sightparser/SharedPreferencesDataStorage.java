@@ -2,26 +2,30 @@ package sugar.free.sightparser;
 
 import android.content.SharedPreferences;
 
-public class DataStorage {
+public class SharedPreferencesDataStorage implements DataStorage {
 
     private SharedPreferences sharedPreferences;
 
-    public DataStorage(SharedPreferences sharedPreferences) {
+    public SharedPreferencesDataStorage(SharedPreferences sharedPreferences) {
         this.sharedPreferences = sharedPreferences;
     }
 
+    @Override
     public String get(String key) {
         return sharedPreferences.getString(key, null);
     }
 
+    @Override
     public void set(String key, String value) {
         sharedPreferences.edit().putString(key, value).apply();
     }
 
+    @Override
     public boolean contains(String key) {
         return sharedPreferences.contains(key);
     }
 
+    @Override
     public void remove(String key) {
         sharedPreferences.edit().remove(key).apply();
     }
@@ -0,0 +1,33 @@
+package sugar.free.sightparser.handling;
+
+import android.os.RemoteException;
+
+import sugar.free.sightparser.SerializationUtils;
+import sugar.free.sightparser.applayer.messages.AppLayerMessage;
+
+/**
+ * Serializes the outcome of a request and passes it to the client process.
+ */
+class BinderRequestCallback implements RequestCallback {
+
+    private IMessageCallback messageCallback;
+
+    BinderRequestCallback(IMessageCallback messageCallback) {
+        this.messageCallback = messageCallback;
+    }
+
+    @Override
+    public void onMessage(AppLayerMessage message) throws RemoteException {
+        messageCallback.onMessage(SerializationUtils.serialize(message));
+    }
+
+    @Override
+    public void onError(Exception error) throws RemoteException {
+        messageCallback.onError(SerializationUtils.serialize(error));
+    }
+
+    @Override
+    public boolean isAlive() {
+        return messageCallback.asBinder().isBinderAlive();
+    }
+}
@@ -4,32 +4,41 @@ import android.annotation.SuppressLint;
 import android.app.Service;
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
-import android.bluetooth.BluetoothSocket;
 import android.content.Intent;
 import android.os.Binder;
+import android.os.Debug;
 import android.os.Handler;
 import android.os.IBinder;
 import android.os.RemoteException;
 import android.util.Log;
 import android.util.SparseBooleanArray;
 import android.widget.Toast;
-import com.crashlytics.android.answers.Answers;
-import com.crashlytics.android.answers.CustomEvent;
+import sugar.free.sightparser.BluetoothTransport;
 import sugar.free.sightparser.DataStorage;
+import sugar.free.sightparser.NonceJournal;
 import sugar.free.sightparser.Pref;
 import sugar.free.sightparser.SerializationUtils;
+import sugar.free.sightparser.SharedPreferencesDataStorage;
+import sugar.free.sightparser.Transport;
 import sugar.free.sightparser.applayer.messages.AppLayerMessage;
-import sugar.free.sightparser.error.DisconnectedError;
+import sugar.free.sightparser.crypto.KeyPairPool;
+import sugar.free.sightparser.error.ErrorEvent;
+import sugar.free.sightparser.error.NonceJournalLostException;
 import sugar.free.sightparser.error.NotAuthorizedError;
+import sugar.free.sightparser.logging.AndroidLogSink;
+import sugar.free.sightparser.pipeline.InboundBuffer;
 import sugar.free.sightparser.pipeline.Pipeline;
 import sugar.free.sightparser.pipeline.Status;
+import sugar.free.sightparser.telemetry.AnswersTelemetrySink;
+import sugar.free.sightparser.telemetry.Telemetry;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class SightService extends Service {
@@ -40,6 +49,7 @@ public class SightService extends Service {
     private static final int MAX_TIMEOUT_WAIT = 60000;
     private static final int TIMEOUT_WAIT_STEP = 1000;
     private static final String SIGHTREMOTE_PACKAGE_NAME = "sugar.free.sightremote";
+    private static final String CAPTURE_TRACE_PREF = "capture_trace";
     private final SparseBooleanArray allowedUid = new SparseBooleanArray();
     private long statusIdCounter = 0;
     private String tempMac;
@@ -47,15 +57,16 @@ public class SightService extends Service {
     private ConnectionThread connectionThread;
     private Pipeline pipeline;
     private DataStorage dataStorage;
+    private NonceJournal nonceJournal;
     private FirewallConstraint firewall;
     private Map<IStatusCallback, IBinder.DeathRecipient> statusCallbackDeathRecipients = new ConcurrentHashMap<>();
     private Map<Long, IStatusCallback> statusCallbackIds = new ConcurrentHashMap<>();
     private Status status = Status.DISCONNECTED;
     private Timer disconnectTimer;
-    private Timer timeoutTimer;
+    private volatile Timer timeoutTimer;
     private boolean reconnect;
     private long timeoutWait = MIN_TIMEOUT_WAIT;
-    private volatile BluetoothSocket bluetoothSocket = null;
+    private volatile Transport transport = null;
     private long lastAuthPoll = 0;
     private ISightService.Stub binder = new ISightService.Stub() {
 
@@ -82,6 +93,7 @@ public class SightService extends Service {
                     connectedClients.put(binder, deathRecipient);
                     binder.linkToDeath(deathRecipient, 0);
                 }
+                KeyPairPool.prefill();
                 SightService.this.disconnect(false);
                 reset();
                 tempMac = mac;
@@ -109,11 +121,9 @@ public class SightService extends Service {
         public void requestMessage(byte[] message, IMessageCallback callback) throws RemoteException {
             if (verifyCaller("requestMessage")) {
                 final AppLayerMessage msg = (AppLayerMessage) SerializationUtils.deserialize(message);
-                Answers.getInstance().logCustom(new CustomEvent("Message Requested")
-                        .putCustomAttribute("Application", getCallerName())
-                        .putCustomAttribute("Message", msg.getClass().getSimpleName()));
+                Telemetry.count("Message Requested", "Application", getCallerName(), "Message", msg.getClass().getSimpleName());
                 if (firewall.isAllowed(msg)) {
-                    MessageRequest messageRequest = new MessageRequest(msg, callback, callback.asBinder());
+                    MessageRequest messageRequest = new MessageRequest(msg, new BinderRequestCallback(callback));
                     if (pipeline != null && status == Status.CONNECTED)
                         pipeline.requestMessage(messageRequest);
                 } else {
@@ -151,8 +161,7 @@ public class SightService extends Service {
         @Override
         public void connect(final IBinder binder) throws RemoteException {
             if (verifyCaller("connect")) {
-                Answers.getInstance().logCustom(new CustomEvent("Requested Connection To Pump")
-                        .putCustomAttribute("Application", getCallerName()));
+                Telemetry.count("Requested Connection To Pump", "Application", getCallerName());
                 if (!connectedClients.containsKey(binder)) {
                     Log.d("SightService", "CLIENT CONNECTS TO PUMP");
                     if (disconnectTimer != null) disconnectTimer.cancel();
@@ -181,8 +190,7 @@ public class SightService extends Service {
         @Override
         public void disconnect(IBinder binder) throws RemoteException {
             if (connectedClients.containsKey(binder)) {
-                Answers.getInstance().logCustom(new CustomEvent("Connection Request Withdrawn")
-                        .putCustomAttribute("Application", getCallerName()));
+                Telemetry.count("Connection Request Withdrawn", "Application", getCallerName());
                 Log.d("SightService", "CLIENT DISCONNECTS FROM PUMP");
                 binder.unlinkToDeath(connectedClients.get(binder), 0);
                 connectedClients.remove(binder);
@@ -234,6 +242,7 @@ public class SightService extends Service {
                 getDataStorage().remove("COMMID");
                 getDataStorage().remove("LASTNONCESENT");
                 getDataStorage().remove("LASTNONCERECEIVED");
+                getNonceJournal().reset();
                 getDataStorage().remove("DEVICEMAC");
             } else {
                 throw new RemoteException("Not authorized");
@@ -243,14 +252,14 @@ public class SightService extends Service {
         @Override
         public void aclDisconnect(String mac) throws RemoteException {
             if (verifyAdminCaller("aclDisconnect")) {
-                if (bluetoothSocket == null) return;
+                if (transport == null) return;
                 if (mac == null) return;
                 if (getDataStorage().get("DEVICEMAC") == null) return;
                 if (getDataStorage().get("DEVICEMAC").equalsIgnoreCase(mac)) {
                     try {
-                        if (bluetoothSocket.isConnected()) {
+                        if (transport.isConnected()) {
                             Log.d("SightService", "Received ACL disconnect, closing socket...");
-                            bluetoothSocket.close();
+                            transport.close();
                         }
                     } catch (IOException e) {
                         e.printStackTrace();
@@ -267,7 +276,8 @@ public class SightService extends Service {
             Log.d("SightService", "STATUS: " + status);
             SightService.this.status = status;
             if (status == Status.CONNECTED) {
-                timeoutTimer.cancel();
+                Timer timer = timeoutTimer;
+                if (timer != null) timer.cancel();
                 if (tempMac != null) {
                     getDataStorage().set("DEVICEMAC", tempMac);
                     tempMac = null;
@@ -281,16 +291,15 @@ public class SightService extends Service {
                     e.printStackTrace();
                 }
             }
-            Answers.getInstance().logCustom(new CustomEvent("Connection Status Changed")
-                    .putCustomAttribute("Status", status.toString()));
+            Telemetry.count("Connection Status Changed", "Status", status.toString());
         }
     };
 
     @Override
     public IBinder onBind(Intent intent) {
         Log.d("SightService", "CLIENT BOUND TO SERVICE");
-        Answers.getInstance().logCustom(new CustomEvent("Client Bound To Service")
-                .putCustomAttribute("Application", getCallerName()));
+        if (!getDataStorage().contains("DEVICEMAC")) KeyPairPool.prefill();
+        Telemetry.count("Client Bound To Service", "Application", getCallerName());
         return binder;
     }
 
@@ -298,15 +307,13 @@ public class SightService extends Service {
     public void onRebind(Intent intent) {
         Log.d("SightService", "CLIENT REBOUND TO SERVICE");
 
-        Answers.getInstance().logCustom(new CustomEvent("Client Rebound To Service")
-                .putCustomAttribute("Application", getCallerName()));
+        Telemetry.count("Client Rebound To Service", "Application", getCallerName());
     }
 
     @Override
     public boolean onUnbind(Intent intent) {
         Log.d("SightService", "CLIENT UNBOUND FROM SERVICE");
-        Answers.getInstance().logCustom(new CustomEvent("Client Unbound From Service")
-                .putCustomAttribute("Application", getCallerName()));
+        Telemetry.count("Client Unbound From Service", "Application", getCallerName());
         return true;
     }
 
@@ -327,7 +334,15 @@ public class SightService extends Service {
         }
     }
 
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        sugar.free.sightparser.logging.Log.setSink(new AndroidLogSink());
+        Telemetry.setSink(new AnswersTelemetrySink());
+    }
+
     public int onStartCommand(Intent intent, int flags, int startId) {
+        if (!getDataStorage().contains("DEVICEMAC")) KeyPairPool.prefill();
         if (getDataStorage().contains("PASSWORD"))
             sugar.free.sightparser.applayer.descriptors.Service.REMOTE_CONTROL.setServicePassword(getDataStorage().get("PASSWORD"));
         if (firewall == null) {
@@ -339,14 +354,21 @@ public class SightService extends Service {
     public void onDestroy() {
         if (disconnectTimer != null) disconnectTimer.cancel();
         disconnect(false);
+        Telemetry.flush();
     }
 
     private DataStorage getDataStorage() {
         if (dataStorage == null)
-            dataStorage = new DataStorage(getSharedPreferences("sugar.free.sightremote.services.SIGHTSERVICE", MODE_PRIVATE));
+            dataStorage = new SharedPreferencesDataStorage(getSharedPreferences("sugar.free.sightremote.services.SIGHTSERVICE", MODE_PRIVATE));
         return dataStorage;
     }
 
+    private NonceJournal getNonceJournal() {
+        if (nonceJournal == null)
+            nonceJournal = new NonceJournal(new File(getFilesDir(), "sightservice_nonces.bin"));
+        return nonceJournal;
+    }
+
     private boolean verifyAdminCaller(String msg) {
         final int callingUid = Binder.getCallingUid();
         final String[] packages = getPackageManager().getPackagesForUid(callingUid);
@@ -429,18 +451,38 @@ public class SightService extends Service {
         @SuppressLint("MissingPermission")
         @Override
         public void run() {
+            try {
+                try {
+                    pipeline = new Pipeline(getDataStorage(), getNonceJournal(), statusCallback);
+                } catch (NonceJournalLostException e) {
+                    Log.d("SightService", "Nonces lost, the pump has to be paired again: " + e.getMessage());
+                    getDataStorage().remove("DEVICEMAC");
+                    if (!pairing) {
+                        statusCallback.onStatusChange(Status.PAIRING_LOST);
+                        connectionThread = null;
+                        return;
+                    }
+                    //The old keys are gone, pairing starts from scratch
+                    pipeline = new Pipeline(getDataStorage(), getNonceJournal(), statusCallback);
+                }
+                pipeline.setReaderThreadFactory(runnable -> new Thread(() -> {
+                    runnable.run();
+                    Log.d("SightService", "Reader thread used " + Debug.threadCpuTimeNanos() / 1000000 + "ms CPU time");
+                }, "SightReader"));
+            } catch (IOException e) {
+                Log.d("SightService", "Failed to load nonce journal: " + e);
+                connectionThread = null;
+                return;
+            }
 
             try {
-                pipeline = new Pipeline(getDataStorage(), statusCallback);
                 pipeline.setStatus(Status.CONNECTING);
                 BluetoothAdapter bluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
                 if (!bluetoothAdapter.isEnabled()) bluetoothAdapter.enable();
                 BluetoothDevice bluetoothDevice = bluetoothAdapter.getRemoteDevice(mac);
 
                 if (pairing) removeBond(bluetoothDevice);
-                if (bluetoothSocket == null) {
-                    bluetoothSocket = bluetoothDevice.createInsecureRfcommSocketToServiceRecord(UUID.fromString("00001101-0000-1000-8000-00805f9b34fb"));
-                }
+                if (transport == null) transport = new BluetoothTransport(bluetoothDevice);
                 /*
                 // recommended by android reference but could easily stomp over other things for example G5 discovery
                 if (bluetoothAdapter.isDiscovering()) {
@@ -448,58 +490,75 @@ public class SightService extends Service {
                     bluetoothAdapter.cancelDiscovery();
                 }
                 */
-                bluetoothSocket.connect();
+                transport.connect();
                 if (timeoutWait != MIN_TIMEOUT_WAIT) {
                     Log.d("SightService", "Resetting timeout from " + timeoutWait + " to " + MIN_TIMEOUT_WAIT);
                     timeoutWait = 4000;
                 }
-                pipeline.setChannels(bluetoothSocket.getInputStream(), bluetoothSocket.getOutputStream());
-                if (pairing) pipeline.establishPairing();
-                else pipeline.establishConnection();
+                pipeline.setTransport(transport);
+                if (Pref.get() != null && Pref.get().getBooleanDefaultFalse(CAPTURE_TRACE_PREF)) startCapture();
+                //Scheduled before the reader starts, the connected status cancels it on the reader thread
                 timeoutTimer = new Timer();
-                //  final BluetoothSocket bluetoothSocket1 = bluetoothSocket;
                 if (!pairing) timeoutTimer.schedule(new TimerTask() {
                     @Override
                     public void run() {
                         Log.d("SightService", "TIMEOUT");
                         disconnect(true);
                         try {
-                            bluetoothSocket.close();
-                            bluetoothSocket = null;
+                            transport.close();
+                            transport = null;
                             timeoutWait = Math.min(timeoutWait + TIMEOUT_WAIT_STEP, MAX_TIMEOUT_WAIT);
                         } catch (IOException e) {
                         }
                     }
                 }, timeoutWait);
-                while (pipeline.getStatus() != Status.DISCONNECTED && !Thread.currentThread().isInterrupted())
-                    pipeline.loopCall();
-                timeoutTimer.cancel();
+                pipeline.startWriting();
+                pipeline.startReading();
+                if (pairing) pipeline.establishPairing();
+                else pipeline.establishConnection();
+                try {
+                    pipeline.awaitDisconnect();
+                } catch (InterruptedException e) {
+                    Log.d("SightService", "Connection thread interrupted");
+                }
                 pipeline.disconnect();
             } catch (IOException e) {
                 Log.d("SightService", "IO Exception in state " + pipeline.getStatus() + " " + e);
                 //e.printStackTrace();
             } finally {
-                pipeline.receive(new DisconnectedError());
-
-                try {
-                    // don't close socket if we were connecting
-                    if ((pipeline.getStatus() != Status.CONNECTING) && (bluetoothSocket != null)) {
-                        Log.d("SightService", "Closing socket");
-                        bluetoothSocket.close();
-                        bluetoothSocket = null;
-                    } else {
-                        Log.d("SightService", "Not closing socket");
-                        timeoutWait = Math.min(timeoutWait + TIMEOUT_WAIT_STEP, MAX_TIMEOUT_WAIT);
-                        Log.d("SightService", "sleeping " + timeoutWait);
-                        try {
-                            Thread.sleep(timeoutWait);
-                        } catch (InterruptedException e) {
-                            //
-                        }
-                        Log.d("SightService", "waking");
+                if (timeoutTimer != null) timeoutTimer.cancel();
+                pipeline.stopWriting();
+                pipeline.flushNonceJournal();
+                InboundBuffer inboundBuffer = pipeline.getInboundBuffer();
+                Log.d("SightService", "Inbound buffer high water mark: " + inboundBuffer.getHighWaterMark()
+                        + " capacity: " + inboundBuffer.capacity() + " grown: " + inboundBuffer.getGrowCount());
+
+                // don't close socket if we were connecting, unless it is connected and already being read
+                boolean closeSocket = (pipeline.getStatus() != Status.CONNECTING || pipeline.isReading()) && (transport != null);
+                if (closeSocket) {
+                    Log.d("SightService", "Closing socket");
+                    try {
+                        transport.close();
+                        transport = null;
+                    } catch (IOException e1) {
+                        //
                     }
-                } catch (IOException e1) {
-                    //
+                }
+                pipeline.stopReading();
+                // only once the reader thread is gone, so the handlers never see a frame and the disconnect at the same time
+                pipeline.receive(ErrorEvent.DISCONNECTED);
+                pipeline.stopCapture();
+
+                if (!closeSocket) {
+                    Log.d("SightService", "Not closing socket");
+                    timeoutWait = Math.min(timeoutWait + TIMEOUT_WAIT_STEP, MAX_TIMEOUT_WAIT);
+                    Log.d("SightService", "sleeping " + timeoutWait);
+                    try {
+                        Thread.sleep(timeoutWait);
+                    } catch (InterruptedException e) {
+                        //
+                    }
+                    Log.d("SightService", "waking");
                 }
 
                 if (pipeline.getStatus() != Status.DISCONNECTED)
@@ -513,6 +572,17 @@ public class SightService extends Service {
             }
         }
 
+        /**
+         * Overwrites the trace of the previous connection, so there is at most one on the device.
+         */
+        private void startCapture() {
+            try {
+                pipeline.startCapture(new FileOutputStream(new File(getFilesDir(), "sightservice_trace.bin")));
+            } catch (IOException e) {
+                Log.d("SightService", "Failed to start trace capture: " + e);
+            }
+        }
+
         private void removeBond(BluetoothDevice bluetoothDevice) {
             try {
                 Method method = bluetoothDevice.getClass().getMethod("removeBond", (Class[]) null);
@@ -0,0 +1,12 @@
+package sugar.free.sightparser.logging;
+
+/**
+ * Writes the output of the protocol core to Logcat.
+ */
+public class AndroidLogSink implements LogSink {
+
+    @Override
+    public void log(String tag, String message) {
+        android.util.Log.d(tag, message);
+    }
+}
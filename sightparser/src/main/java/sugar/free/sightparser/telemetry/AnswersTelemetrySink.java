@@ -0,0 +1,22 @@
+package sugar.free.sightparser.telemetry;
+
+import com.crashlytics.android.answers.Answers;
+import com.crashlytics.android.answers.CustomEvent;
+
+/**
+ * Sends one Answers event per changed counter, with the number of occurrences as "Count".
+ */
+public class AnswersTelemetrySink implements TelemetrySink {
+
+    @Override
+    public void report(String event, String[] attributes, long count) {
+        CustomEvent customEvent = new CustomEvent(event);
+        for (int i = 0; i < attributes.length; i += 2) customEvent.putCustomAttribute(attributes[i], attributes[i + 1]);
+        customEvent.putCustomAttribute("Count", count);
+        Answers.getInstance().logCustom(customEvent);
+    }
+
+    @Override
+    public void flush() {
+    }
+}
@@ -0,0 +1,75 @@
+package sugar.free.sightsimulator;
+
+import sugar.free.sightparser.crypto.Cryptograph;
+import sugar.free.sightparser.pipeline.ByteBuf;
+
+/**
+ * Reply to an app layer request, either data or an error code.
+ */
+final class AppResponse {
+
+    static final byte VERSION = 0x20;
+
+    static final short NOT_AVAILABLE = 0x6A0C;
+    static final short BOLUS_AMOUNT_LIMIT_EXCEEDED = (short) 0x8117;
+    static final short BOLUS_DURATION_LIMIT_EXCEEDED = 0x7E17;
+    static final short ALREADY_IN_THAT_STATE = (short) 0xFC0C;
+    static final short INVALID_SERVICE_PASSWORD = (short) 0x99F0;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private short error;
+    private byte[] data;
+    private boolean crc;
+
+    void reset() {
+        error = 0;
+        data = EMPTY;
+        crc = false;
+    }
+
+    void setData(byte[] data) {
+        this.data = data;
+    }
+
+    /**
+     * Sets data the client expects to be followed by a checksum.
+     */
+    void setDataWithCRC(byte[] data) {
+        this.data = data;
+        this.crc = true;
+    }
+
+    void setError(short error) {
+        this.error = error;
+        this.data = EMPTY;
+        this.crc = false;
+    }
+
+    short getError() {
+        return error;
+    }
+
+    byte[] encode(byte service, short command) {
+        ByteBuf byteBuf = new ByteBuf(6 + data.length + (crc ? 2 : 0));
+        byteBuf.putByte(VERSION);
+        byteBuf.putByte(service);
+        byteBuf.putShort(command);
+        byteBuf.putShort(error);
+        byteBuf.putBytes(data);
+        if (crc) byteBuf.putUInt16LE(Cryptograph.calculateCRC(data));
+        return byteBuf.getBytes();
+    }
+
+    /**
+     * Strips the checksum the client appends to some requests.
+     * @return the payload or null if the checksum does not match
+     */
+    static ByteBuf openCRC(ByteBuf data) {
+        int length = data.size() - 2;
+        if (length < 0) return null;
+        ByteBuf payload = data.slice(0, length);
+        if (data.getUInt16LE(length) != Cryptograph.calculateCRC(payload)) return null;
+        return payload;
+    }
+}
@@ -0,0 +1,96 @@
+package sugar.free.sightsimulator;
+
+import sugar.free.sightparser.authlayer.Nonce;
+import sugar.free.sightparser.crypto.CCMCipher;
+import sugar.free.sightparser.crypto.Cryptograph;
+import sugar.free.sightparser.pipeline.ByteBuf;
+
+/**
+ * Pump side of the auth layer framing, mirrors {@link sugar.free.sightparser.authlayer.AuthLayerMessage}.
+ */
+final class AuthFrames {
+
+    static final byte VERSION = 0x20;
+    static final int HEADER_LENGTH = 29;
+    static final int MIN_FRAME_LENGTH = 37;
+
+    static final byte DATA = 0x03;
+    static final byte ERROR = 0x06;
+    static final byte CONNECTION_REQUEST = 0x09;
+    static final byte CONNECTION_RESPONSE = 0x0A;
+    static final byte KEY_REQUEST = 0x0C;
+    static final byte VERIFY_CONFIRM_REQUEST = 0x0E;
+    static final byte KEY_RESPONSE = 0x11;
+    static final byte VERIFY_DISPLAY_REQUEST = 0x12;
+    static final byte VERIFY_DISPLAY_RESPONSE = 0x14;
+    static final byte SYN_REQUEST = 0x17;
+    static final byte SYN_ACK_RESPONSE = 0x18;
+    static final byte DISCONNECT_REQUEST = 0x1B;
+    static final byte VERIFY_CONFIRM_RESPONSE = 0x1E;
+
+    private static final byte[] MAGIC_HEADER = {(byte) 0x88, (byte) 0xCC, (byte) 0xEE, (byte) 0xFF};
+
+    private AuthFrames() {
+    }
+
+    static boolean isCRCCommand(byte command) {
+        return command == CONNECTION_REQUEST || command == CONNECTION_RESPONSE
+                || command == KEY_REQUEST || command == KEY_RESPONSE;
+    }
+
+    /**
+     * Builds a frame, CRC commands are protected by a checksum, all others are sealed with the cipher.
+     */
+    static ByteBuf encode(byte command, byte[] data, Nonce nonce, long commID, CCMCipher cipher) {
+        boolean crc = isCRCCommand(command);
+        int dataLength = data.length + (crc ? 2 : 0);
+        int length = HEADER_LENGTH + dataLength;
+        ByteBuf byteBuf = new ByteBuf(length + 8);
+        byteBuf.putBytes(MAGIC_HEADER);
+        byteBuf.putUInt16LE(length);
+        byteBuf.putUInt16LE(~length);
+        byteBuf.putByte(VERSION);
+        byteBuf.putByte(command);
+        byteBuf.putUInt16LE(dataLength);
+        byteBuf.putUInt32LE(commID);
+        nonce.putLE(byteBuf);
+        byteBuf.putBytes(data);
+        if (crc) byteBuf.putUInt16LE(Cryptograph.calculateCRC(byteBuf, 8, length - 10));
+        byteBuf.putBytes((byte) 0x00, 8);
+        if (!crc) cipher.seal(byteBuf.array(), 8, 21, 16, dataLength);
+        return byteBuf;
+    }
+
+    static byte getCommand(ByteBuf frame) {
+        return frame.getByte(9);
+    }
+
+    static int getDataLength(ByteBuf frame) {
+        return frame.getUInt16LE(10);
+    }
+
+    static Nonce getNonce(ByteBuf frame) {
+        return Nonce.readLE(frame.slice(16, Nonce.LENGTH));
+    }
+
+    /**
+     * @return the payload without its checksum or null if the checksum does not match
+     */
+    static ByteBuf openCRC(ByteBuf frame) {
+        int dataLength = getDataLength(frame);
+        int crc = frame.getUInt16LE(HEADER_LENGTH + dataLength - 2);
+        if (crc != Cryptograph.calculateCRC(frame, 8, 21 + dataLength - 2)) return null;
+        return frame.slice(HEADER_LENGTH, dataLength - 2);
+    }
+
+    /**
+     * Decrypts a copy of the frame.
+     * @return the payload or null if the tag does not match
+     */
+    static ByteBuf openEncrypted(ByteBuf frame, CCMCipher cipher) {
+        int dataLength = getDataLength(frame);
+        byte[] bytes = frame.getBytes();
+        if (!cipher.open(bytes, 8, 21, 16, dataLength)) return null;
+        return ByteBuf.wrap(bytes, HEADER_LENGTH, dataLength);
+    }
+}
@@ -0,0 +1,61 @@
+package sugar.free.sightsimulator;
+
+import sugar.free.sightparser.applayer.descriptors.RestrictionLevel;
+import sugar.free.sightparser.pipeline.ByteBuf;
+
+class ConfigurationService implements ServiceHandler {
+
+    private final PumpState state;
+
+    ConfigurationService(PumpState state) {
+        this.state = state;
+    }
+
+    @Override
+    public void handle(short command, ByteBuf data, AppResponse response) {
+        switch (command) {
+            case 0x561E:
+                readBlock(data, response);
+                break;
+            case (short) 0xAA1E:
+                writeBlock(data, response);
+                break;
+            case 0x491E:
+            case (short) 0xB51E:
+                break;
+            case (short) 0xFF1B:
+                if (AppResponse.openCRC(data) == null) response.setError(AppResponse.NOT_AVAILABLE);
+                break;
+            default:
+                response.setError(AppResponse.NOT_AVAILABLE);
+        }
+    }
+
+    private void readBlock(ByteBuf data, AppResponse response) {
+        short id = data.getShort(0);
+        byte[] block = state.getConfigurationBlock(id);
+        if (block == null) {
+            response.setError(AppResponse.NOT_AVAILABLE);
+            return;
+        }
+        ByteBuf byteBuf = new ByteBuf(4 + block.length);
+        byteBuf.putShort(id);
+        byteBuf.putShort(RestrictionLevel.PUMP.getValue());
+        byteBuf.putBytes(block);
+        response.setDataWithCRC(byteBuf.getBytes());
+    }
+
+    private void writeBlock(ByteBuf data, AppResponse response) {
+        ByteBuf payload = AppResponse.openCRC(data);
+        if (payload == null || payload.size() < 4) {
+            response.setError(AppResponse.NOT_AVAILABLE);
+            return;
+        }
+        short id = payload.readShort();
+        payload.skip(2); //Restriction level
+        state.setConfigurationBlock(id, payload.getBytes());
+        ByteBuf byteBuf = new ByteBuf(2);
+        byteBuf.putShort(id);
+        response.setData(byteBuf.getBytes());
+    }
+}
@@ -0,0 +1,78 @@
+package sugar.free.sightsimulator;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import sugar.free.sightparser.crypto.ServicePasswordHasher;
+import sugar.free.sightparser.pipeline.ByteBuf;
+
+/**
+ * Binding, connecting and service activation of one connection.
+ */
+class ConnectionService implements ServiceHandler {
+
+    private static final byte[] MODEL_NUMBER = {'4', '8', '1', 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0};
+
+    private final PumpSimulator simulator;
+    private final SecureRandom random = new SecureRandom();
+    private final byte[][] challenges = new byte[256][];
+    private final boolean[] activated = new boolean[256];
+
+    ConnectionService(PumpSimulator simulator) {
+        this.simulator = simulator;
+    }
+
+    boolean isActivated(byte serviceID) {
+        return activated[serviceID & 0xFF];
+    }
+
+    @Override
+    public void handle(short command, ByteBuf data, AppResponse response) {
+        switch (command) {
+            case (short) 0xCDF3:
+                response.setData(MODEL_NUMBER);
+                break;
+            case 0x0BF0:
+            case 0x14F0:
+                break;
+            case (short) 0xD2F3:
+                challenge(data, response);
+                break;
+            case (short) 0xF7F0:
+                activate(data, response);
+                break;
+            case 0x31F3:
+                Arrays.fill(activated, false);
+                break;
+            default:
+                response.setError(AppResponse.NOT_AVAILABLE);
+        }
+    }
+
+    private void challenge(ByteBuf data, AppResponse response) {
+        byte[] challenge = new byte[16];
+        random.nextBytes(challenge);
+        challenges[data.getByte(0) & 0xFF] = challenge;
+        response.setData(challenge);
+    }
+
+    private void activate(ByteBuf data, AppResponse response) {
+        byte serviceID = data.getByte(0);
+        short version = data.getShort(1);
+        String password = simulator.getServicePassword(serviceID);
+        if (password != null) {
+            byte[] challenge = challenges[serviceID & 0xFF];
+            challenges[serviceID & 0xFF] = null;
+            if (challenge == null || data.size() < 19
+                    || !Arrays.equals(new ServicePasswordHasher(password).hash(challenge), data.getBytes(3, 16))) {
+                response.setError(AppResponse.INVALID_SERVICE_PASSWORD);
+                return;
+            }
+        }
+        activated[serviceID & 0xFF] = true;
+        ByteBuf byteBuf = new ByteBuf(3);
+        byteBuf.putByte(serviceID);
+        byteBuf.putShort(version);
+        response.setData(byteBuf.getBytes());
+    }
+}
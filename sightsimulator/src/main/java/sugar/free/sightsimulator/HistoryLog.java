@@ -0,0 +1,222 @@
+package sugar.free.sightsimulator;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+
+import sugar.free.sightparser.Helpers;
+import sugar.free.sightparser.applayer.descriptors.HistoryBolusType;
+import sugar.free.sightparser.applayer.descriptors.HistoryType;
+import sugar.free.sightparser.applayer.descriptors.PumpStatus;
+import sugar.free.sightparser.pipeline.ByteBuf;
+
+/**
+ * The event history of the simulated pump.
+ * Events are encoded once when they are added, so reading them back only copies bytes.
+ */
+public class HistoryLog {
+
+    public static final short END_OF_TBR = 0x0303;
+    public static final short BOLUS_PROGRAMMED = 0x6A03;
+    public static final short BOLUS_DELIVERED = (short) 0x9503;
+    public static final short PUMP_STATUS_CHANGED = (short) 0xC300;
+    public static final short DAILY_TOTAL = (short) 0xC003;
+    public static final short CARTRIDGE_INSERTED = 0x6600;
+
+    private static final long EVENT_INTERVAL = 5 * 60 * 1000;
+
+    private final List<Event> events = new ArrayList<>();
+    private long nextEventNumber = 1;
+
+    public synchronized int size() {
+        return events.size();
+    }
+
+    /**
+     * @return the number of the latest event or -1 if the history is empty
+     */
+    public synchronized long getLatestEventNumber() {
+        return nextEventNumber - 1 == 0 ? -1 : nextEventNumber - 1;
+    }
+
+    /**
+     * @return the event number
+     */
+    public synchronized long add(short type, long time, byte[] data) {
+        long eventNumber = nextEventNumber++;
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        ByteBuf byteBuf = new ByteBuf(16 + data.length);
+        byteBuf.putUInt16LE(14 + data.length);
+        byteBuf.putShort(type);
+        putDate(byteBuf, calendar);
+        byteBuf.putByte((byte) 0x00);
+        putTime(byteBuf, calendar);
+        byteBuf.putUInt32LE(eventNumber);
+        byteBuf.putBytes(data);
+        events.add(new Event(eventNumber, type, byteBuf.getBytes()));
+        return eventNumber;
+    }
+
+    /**
+     * Fills the history with a repeating mix of boluses, temporary basal rates, pump status changes and daily totals,
+     * spaced five minutes apart and ending now.
+     */
+    public void generate(int count, long seed) {
+        Random random = new Random(seed);
+        long time = System.currentTimeMillis() - count * EVENT_INTERVAL;
+        for (int i = 0; i < count; i++, time += EVENT_INTERVAL) {
+            int bolusID = i + 1;
+            double amount = Helpers.roundDouble((1 + random.nextInt(80)) / 10D);
+            switch (i % 8) {
+                case 0:
+                case 2:
+                    add(BOLUS_PROGRAMMED, time, bolusProgrammed(HistoryBolusType.STANDARD, amount, 0, 0, bolusID));
+                    break;
+                case 1:
+                case 3:
+                    add(BOLUS_DELIVERED, time, bolusDelivered(HistoryBolusType.STANDARD, time, amount, 0, 0, bolusID));
+                    break;
+                case 4:
+                    add(END_OF_TBR, time, endOfTBR(time - 30 * 60 * 1000, 50 + random.nextInt(100), 30));
+                    break;
+                case 5:
+                    add(PUMP_STATUS_CHANGED, time, pumpStatusChanged(PumpStatus.STARTED, PumpStatus.PAUSED));
+                    break;
+                case 6:
+                    add(PUMP_STATUS_CHANGED, time, pumpStatusChanged(PumpStatus.PAUSED, PumpStatus.STARTED));
+                    break;
+                default:
+                    add(DAILY_TOTAL, time, dailyTotal(time, 10 + random.nextInt(20), 10 + random.nextInt(40)));
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Writes the encoded events into the list, starting at an index.
+     * @return the index to continue from, or -1 if the end has been reached
+     */
+    synchronized int read(int index, HistoryType historyType, boolean forward, int maxFrames, List<byte[]> frames) {
+        while (index >= 0 && index < events.size() && frames.size() < maxFrames) {
+            Event event = events.get(index);
+            if (matches(event.type, historyType)) frames.add(event.frame);
+            index += forward ? 1 : -1;
+        }
+        return index >= 0 && index < events.size() ? index : -1;
+    }
+
+    /**
+     * @return the index of the first event to read when starting at an event number
+     */
+    synchronized int indexOf(long eventNumber, boolean forward) {
+        if (events.isEmpty()) return -1;
+        long first = events.get(0).number;
+        int index = (int) Math.max(-1, Math.min(events.size(), eventNumber - first));
+        if (forward) return index < events.size() ? Math.max(index, 0) : -1;
+        else return Math.min(index, events.size() - 1);
+    }
+
+    private static boolean matches(short type, HistoryType historyType) {
+        switch (historyType) {
+            case TBR:
+                return type == END_OF_TBR;
+            case BOLUS:
+                return type == BOLUS_PROGRAMMED || type == BOLUS_DELIVERED;
+            default:
+                return true;
+        }
+    }
+
+    public static byte[] bolusProgrammed(HistoryBolusType bolusType, double immediateAmount, double extendedAmount, int duration, int bolusID) {
+        ByteBuf byteBuf = new ByteBuf(14);
+        byteBuf.putShort(bolusType.getValue());
+        byteBuf.putUInt16LE(Helpers.roundDoubleToInt(immediateAmount * 100D));
+        byteBuf.putUInt16LE(Helpers.roundDoubleToInt(extendedAmount * 100D));
+        byteBuf.putUInt16LE(duration);
+        byteBuf.putBytes((byte) 0x00, 4);
+        byteBuf.putUInt16LE(bolusID);
+        return byteBuf.getBytes();
+    }
+
+    public static byte[] bolusDelivered(HistoryBolusType bolusType, long startTime, double immediateAmount, double extendedAmount, int duration, int bolusID) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(startTime);
+        ByteBuf byteBuf = new ByteBuf(16);
+        byteBuf.putShort(bolusType.getValue());
+        byteBuf.putByte((byte) 0x00);
+        putTime(byteBuf, calendar);
+        byteBuf.putUInt16LE(Helpers.roundDoubleToInt(immediateAmount * 100D));
+        byteBuf.putUInt16LE(Helpers.roundDoubleToInt(extendedAmount * 100D));
+        byteBuf.putUInt16LE(duration);
+        byteBuf.putBytes((byte) 0x00, 2);
+        byteBuf.putUInt16LE(bolusID);
+        return byteBuf.getBytes();
+    }
+
+    public static byte[] endOfTBR(long startTime, int amount, int duration) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(startTime);
+        ByteBuf byteBuf = new ByteBuf(8);
+        byteBuf.putByte((byte) 0x00);
+        putTime(byteBuf, calendar);
+        byteBuf.putUInt16LE(amount);
+        byteBuf.putUInt16LE(duration);
+        return byteBuf.getBytes();
+    }
+
+    public static byte[] pumpStatusChanged(PumpStatus oldValue, PumpStatus newValue) {
+        ByteBuf byteBuf = new ByteBuf(4);
+        byteBuf.putShort(oldValue.getValue());
+        byteBuf.putShort(newValue.getValue());
+        return byteBuf.getBytes();
+    }
+
+    public static byte[] dailyTotal(long time, double basalTotal, double bolusTotal) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        ByteBuf byteBuf = new ByteBuf(12);
+        byteBuf.putUInt32LE(Helpers.roundDoubleToInt(basalTotal * 100D));
+        byteBuf.putUInt32LE(Helpers.roundDoubleToInt(bolusTotal * 100D));
+        putDate(byteBuf, calendar);
+        return byteBuf.getBytes();
+    }
+
+    public static byte[] cartridgeInserted(double amount) {
+        ByteBuf byteBuf = new ByteBuf(2);
+        byteBuf.putUInt16LE(Helpers.roundDoubleToInt(amount * 100D));
+        return byteBuf.getBytes();
+    }
+
+    private static void putDate(ByteBuf byteBuf, Calendar calendar) {
+        int year = calendar.get(Calendar.YEAR);
+        byteBuf.putByte(toBOC(year / 100));
+        byteBuf.putByte(toBOC(year % 100));
+        byteBuf.putByte(toBOC(calendar.get(Calendar.MONTH) + 1));
+        byteBuf.putByte(toBOC(calendar.get(Calendar.DAY_OF_MONTH)));
+    }
+
+    private static void putTime(ByteBuf byteBuf, Calendar calendar) {
+        byteBuf.putByte(toBOC(calendar.get(Calendar.HOUR_OF_DAY)));
+        byteBuf.putByte(toBOC(calendar.get(Calendar.MINUTE)));
+        byteBuf.putByte(toBOC(calendar.get(Calendar.SECOND)));
+    }
+
+    private static byte toBOC(int value) {
+        return (byte) ((value / 10) << 4 | value % 10);
+    }
+
+    private static final class Event {
+
+        private final long number;
+        private final short type;
+        private final byte[] frame;
+
+        private Event(long number, short type, byte[] frame) {
+            this.number = number;
+            this.type = type;
+            this.frame = frame;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package sugar.free.sightsimulator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import sugar.free.sightparser.applayer.descriptors.HistoryReadingDirection;
+import sugar.free.sightparser.applayer.descriptors.HistoryType;
+import sugar.free.sightparser.pipeline.ByteBuf;
+
+/**
+ * Serves the history reading sessions of one connection.
+ */
+class HistoryService implements ServiceHandler {
+
+    private final PumpState state;
+    private final List<byte[]> frames = new ArrayList<>();
+    private HistoryType historyType;
+    private boolean forward;
+    private int index = -1;
+
+    HistoryService(PumpState state) {
+        this.state = state;
+    }
+
+    @Override
+    public void handle(short command, ByteBuf data, AppResponse response) {
+        switch (command) {
+            case 0x5428:
+                openSession(data, response);
+                break;
+            case (short) 0xA828:
+                readFrames(response);
+                break;
+            case (short) 0xE797:
+                historyType = null;
+                break;
+            default:
+                response.setError(AppResponse.NOT_AVAILABLE);
+        }
+    }
+
+    private void openSession(ByteBuf data, AppResponse response) {
+        ByteBuf payload = AppResponse.openCRC(data);
+        if (payload == null || payload.size() < 8) {
+            response.setError(AppResponse.NOT_AVAILABLE);
+            return;
+        }
+        historyType = getHistoryType(payload.readShort());
+        forward = payload.readShort() == HistoryReadingDirection.FORWARD.getValue();
+        index = state.getHistory().indexOf(payload.readUInt32LE(), forward);
+    }
+
+    private void readFrames(AppResponse response) {
+        if (historyType == null) {
+            response.setError(AppResponse.NOT_AVAILABLE);
+            return;
+        }
+        frames.clear();
+        if (index != -1) index = state.getHistory().read(index, historyType, forward, state.getHistoryFramesPerRead(), frames);
+        int length = 4;
+        for (byte[] frame : frames) length += frame.length;
+        ByteBuf byteBuf = new ByteBuf(length);
+        byteBuf.putBytes((byte) 0x00, 2);
+        byteBuf.putUInt16LE(frames.size());
+        for (byte[] frame : frames) byteBuf.putBytes(frame);
+        response.setDataWithCRC(byteBuf.getBytes());
+    }
+
+    private static HistoryType getHistoryType(short value) {
+        for (HistoryType historyType : HistoryType.values())
+            if (historyType.getValue() == value) return historyType;
+        return HistoryType.ALL;
+    }
+}
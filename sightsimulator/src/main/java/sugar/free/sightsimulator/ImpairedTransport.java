@@ -0,0 +1,139 @@
+package sugar.free.sightsimulator;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import lombok.Getter;
+import sugar.free.sightparser.Transport;
+
+/**
+ * Wraps a transport and applies {@link NetworkConditions} to everything written to it.
+ * Reads are passed through, wrap the other end as well to impair both directions.
+ * Writes are dropped as a whole so the framing on the receiving side stays intact,
+ * and fragments are delivered by a separate thread in the order they were written, like on a stream socket.
+ */
+public class ImpairedTransport implements Transport {
+
+    private static final Fragment STOP = new Fragment(0, null);
+
+    private final Transport transport;
+    private final NetworkConditions conditions;
+    private final Random random;
+    private final BlockingQueue<Fragment> fragments = new LinkedBlockingQueue<>();
+    private Thread deliveryThread;
+    private long lastDueTime = 0;
+    private volatile IOException deliveryError;
+
+    @Getter
+    private long writeCount = 0;
+    @Getter
+    private long droppedCount = 0;
+    @Getter
+    private long fragmentCount = 0;
+
+    public ImpairedTransport(Transport transport, NetworkConditions conditions) {
+        this.transport = transport;
+        this.conditions = conditions;
+        this.random = new Random(conditions.getSeed());
+    }
+
+    @Override
+    public synchronized void connect() throws IOException {
+        transport.connect();
+        if (deliveryThread != null) return;
+        deliveryThread = new Thread(this::deliver, "SightImpairment");
+        deliveryThread.setDaemon(true);
+        deliveryThread.start();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return transport.isConnected();
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        return transport.read(buffer, offset, length);
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) throws IOException {
+        if (deliveryError != null) throw deliveryError;
+        if (deliveryThread == null) throw new IOException("Not connected");
+        writeCount++;
+        if (conditions.getPacketLoss() > 0 && random.nextDouble() < conditions.getPacketLoss()) {
+            droppedCount++;
+            return;
+        }
+        long delay = conditions.getLatency();
+        if (conditions.getJitter() > 0) delay += (long) (random.nextDouble() * conditions.getJitter());
+        lastDueTime = Math.max(lastDueTime, System.currentTimeMillis() + delay);
+        int maxFragmentSize = conditions.getMaxFragmentSize();
+        int position = offset;
+        int end = offset + length;
+        while (position < end) {
+            int size = maxFragmentSize > 0 ? 1 + random.nextInt(maxFragmentSize) : length;
+            size = Math.min(size, end - position);
+            fragments.add(new Fragment(lastDueTime, Arrays.copyOfRange(bytes, position, position + size)));
+            fragmentCount++;
+            position += size;
+        }
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() throws IOException {
+        Thread deliveryThread;
+        synchronized (this) {
+            deliveryThread = this.deliveryThread;
+            this.deliveryThread = null;
+        }
+        if (deliveryThread != null) {
+            fragments.add(STOP);
+            try {
+                deliveryThread.join(conditions.getLatency() + conditions.getJitter() + 1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        transport.close();
+    }
+
+    @Override
+    public int getMtu() {
+        return transport.getMtu();
+    }
+
+    private void deliver() {
+        try {
+            Fragment fragment;
+            while ((fragment = fragments.take()) != STOP) {
+                long wait = fragment.dueTime - System.currentTimeMillis();
+                if (wait > 0) Thread.sleep(wait);
+                transport.write(fragment.data, 0, fragment.data.length);
+                if (fragments.isEmpty()) transport.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            deliveryError = e;
+        }
+    }
+
+    private static final class Fragment {
+
+        private final long dueTime;
+        private final byte[] data;
+
+        private Fragment(long dueTime, byte[] data) {
+            this.dueTime = dueTime;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package sugar.free.sightsimulator;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Describes how an {@link ImpairedTransport} degrades the link, the defaults leave it untouched.
+ */
+@Getter
+@Setter
+public class NetworkConditions {
+
+    /**
+     * Fixed delay in milliseconds added to every write.
+     */
+    private long latency = 0;
+
+    /**
+     * Upper bound in milliseconds of a random delay added on top of {@link #latency}.
+     */
+    private long jitter = 0;
+
+    /**
+     * Probability between 0 and 1 that a write is dropped as a whole.
+     */
+    private double packetLoss = 0;
+
+    /**
+     * Writes are split into fragments of random size up to this many bytes, 0 disables splitting.
+     */
+    private int maxFragmentSize = 0;
+
+    private long seed = 0;
+
+    public boolean isIdeal() {
+        return latency == 0 && jitter == 0 && packetLoss == 0 && maxFragmentSize == 0;
+    }
+}
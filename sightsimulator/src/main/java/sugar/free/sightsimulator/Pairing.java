@@ -0,0 +1,44 @@
+package sugar.free.sightsimulator;
+
+import lombok.Getter;
+import sugar.free.sightparser.authlayer.Nonce;
+import sugar.free.sightparser.crypto.DerivedKeys;
+import sugar.free.sightparser.crypto.SessionCrypto;
+
+/**
+ * Keys and nonces the pump keeps for a paired client, they survive reconnects.
+ */
+public class Pairing {
+
+    @Getter
+    private final SessionCrypto sessionCrypto;
+    @Getter
+    private final long commID;
+    private final Nonce lastNonceSent = new Nonce();
+    private Nonce lastNonceReceived;
+
+    /**
+     * @param derivedKeys the keys as derived by the client, the pump uses them the other way round
+     */
+    public Pairing(DerivedKeys derivedKeys, long commID) {
+        DerivedKeys pumpKeys = new DerivedKeys();
+        pumpKeys.setIncomingKey(derivedKeys.getOutgoingKey());
+        pumpKeys.setOutgoingKey(derivedKeys.getIncomingKey());
+        this.sessionCrypto = new SessionCrypto(pumpKeys);
+        this.commID = commID;
+    }
+
+    public synchronized Nonce nextNonce() {
+        lastNonceSent.increment();
+        return new Nonce(lastNonceSent);
+    }
+
+    /**
+     * @return false if the nonce is not newer than the last one received
+     */
+    public synchronized boolean acceptNonce(Nonce nonce) {
+        if (lastNonceReceived != null && nonce.compareTo(lastNonceReceived) <= 0) return false;
+        lastNonceReceived = nonce;
+        return true;
+    }
+}
@@ -0,0 +1,222 @@
+package sugar.free.sightsimulator;
+
+import org.spongycastle.crypto.params.RSAKeyParameters;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import lombok.Getter;
+import sugar.free.sightparser.Transport;
+import sugar.free.sightparser.applayer.descriptors.Service;
+import sugar.free.sightparser.authlayer.Nonce;
+import sugar.free.sightparser.authlayer.PairingStatus;
+import sugar.free.sightparser.crypto.Cryptograph;
+import sugar.free.sightparser.pipeline.ByteBuf;
+import sugar.free.sightparser.pipeline.InboundBuffer;
+
+/**
+ * Serves one client connection on its own thread, the pump answers every request before reading the next one.
+ */
+public class PumpSession implements Runnable {
+
+    private static final Logger LOGGER = Logger.getLogger("SightSimulator");
+    private static final int READ_BUFFER_SIZE = 1024;
+    private static final int PRE_MASTER_SECRET_LENGTH = 64;
+
+    private final PumpSimulator simulator;
+    private final Transport transport;
+    private final InboundBuffer inboundBuffer = new InboundBuffer(1024, 65536);
+    private final SecureRandom random = new SecureRandom();
+    private final ServiceHandler[] services = new ServiceHandler[256];
+    private final ConnectionService connectionService;
+    private final AppResponse response = new AppResponse();
+    private final Nonce crcNonce = new Nonce();
+    private Pairing pairing;
+    private Thread thread;
+    private volatile boolean closed;
+
+    @Getter
+    private volatile long framesReceived = 0;
+    @Getter
+    private volatile long framesSent = 0;
+    @Getter
+    private volatile long framesRejected = 0;
+
+    PumpSession(PumpSimulator simulator, Transport transport) {
+        this.simulator = simulator;
+        this.transport = transport;
+        this.pairing = simulator.getPairing();
+        PumpState state = simulator.getState();
+        connectionService = new ConnectionService(simulator);
+        services[Service.CONNECTION.getServiceID() & 0xFF] = connectionService;
+        services[Service.STATUS.getServiceID() & 0xFF] = new StatusService(state);
+        services[Service.STATUS_PARAM.getServiceID() & 0xFF] = new StatusParamService(state);
+        services[Service.HISTORY.getServiceID() & 0xFF] = new HistoryService(state);
+        services[Service.CONFIGURATION.getServiceID() & 0xFF] = new ConfigurationService(state);
+        services[Service.REMOTE_CONTROL.getServiceID() & 0xFF] = new RemoteControlService(state);
+    }
+
+    synchronized void start() {
+        thread = new Thread(this, "SightSimulator");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            transport.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Failed to close transport", e);
+        }
+        simulator.onSessionClosed(this);
+    }
+
+    /**
+     * Waits until the session has ended.
+     */
+    public void join(long timeout) throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = this.thread;
+        }
+        if (thread != null) thread.join(timeout);
+    }
+
+    @Override
+    public void run() {
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        try {
+            int read;
+            while (!closed && (read = transport.read(buffer, 0, buffer.length)) != -1) {
+                if (!inboundBuffer.write(buffer, 0, read)) {
+                    LOGGER.warning("Inbound buffer overflow");
+                    break;
+                }
+                while (!closed && inboundBuffer.size() >= AuthFrames.MIN_FRAME_LENGTH) {
+                    int length = inboundBuffer.getUInt16LE(4);
+                    if (inboundBuffer.size() < length + 8) break;
+                    ByteBuf frame = inboundBuffer.peek(length + 8);
+                    inboundBuffer.consume(length + 8);
+                    framesReceived++;
+                    onFrame(frame);
+                }
+            }
+        } catch (Exception e) {
+            if (!closed) LOGGER.log(Level.FINE, "Session failed", e);
+        }
+        close();
+    }
+
+    private void onFrame(ByteBuf frame) throws Exception {
+        byte command = AuthFrames.getCommand(frame);
+        if (AuthFrames.isCRCCommand(command)) {
+            ByteBuf payload = AuthFrames.openCRC(frame);
+            if (payload == null) reject("Invalid CRC");
+            else if (command == AuthFrames.CONNECTION_REQUEST) send(AuthFrames.CONNECTION_RESPONSE, new byte[0]);
+            else if (command == AuthFrames.KEY_REQUEST) exchangeKeys(payload);
+            else reject("Unexpected command " + command);
+            return;
+        }
+        if (pairing == null) {
+            reject("Not paired");
+            return;
+        }
+        ByteBuf payload = AuthFrames.openEncrypted(frame, pairing.getSessionCrypto().getIncoming());
+        if (payload == null) {
+            reject("Invalid trailer");
+            return;
+        }
+        if (!pairing.acceptNonce(AuthFrames.getNonce(frame))) {
+            reject("Invalid nonce");
+            return;
+        }
+        switch (command) {
+            case AuthFrames.VERIFY_DISPLAY_REQUEST:
+                send(AuthFrames.VERIFY_DISPLAY_RESPONSE, new byte[0]);
+                break;
+            case AuthFrames.VERIFY_CONFIRM_REQUEST:
+                simulator.setPairing(pairing);
+                ByteBuf byteBuf = new ByteBuf(2);
+                byteBuf.putShort(PairingStatus.CONFIRMED.getValue());
+                send(AuthFrames.VERIFY_CONFIRM_RESPONSE, byteBuf.getBytes());
+                break;
+            case AuthFrames.SYN_REQUEST:
+                send(AuthFrames.SYN_ACK_RESPONSE, new byte[0]);
+                break;
+            case AuthFrames.DISCONNECT_REQUEST:
+                close();
+                break;
+            case AuthFrames.DATA:
+                onAppMessage(payload);
+                break;
+            default:
+                reject("Unexpected command " + command);
+        }
+    }
+
+    /**
+     * Answers a key request with a fresh pre-master secret encrypted with the public key of the client.
+     */
+    private void exchangeKeys(ByteBuf payload) throws Exception {
+        byte[] clientRandom = payload.readBytes(28);
+        payload.skip(4); //Date
+        byte[] modulus = payload.readBytes(256);
+        byte[] pumpRandom = new byte[28];
+        byte[] secret = new byte[PRE_MASTER_SECRET_LENGTH];
+        random.nextBytes(pumpRandom);
+        random.nextBytes(secret);
+        RSAKeyParameters publicKey = new RSAKeyParameters(false, new BigInteger(1, modulus), BigInteger.valueOf(65537));
+        byte[] encryptedSecret = Cryptograph.encryptRSA(publicKey, secret);
+        long commID = random.nextInt() & 0xFFFFFFFFL;
+        pairing = new Pairing(Cryptograph.deriveKeys(secret, clientRandom, pumpRandom), commID);
+        ByteBuf byteBuf = new ByteBuf(288);
+        byteBuf.putBytes(pumpRandom);
+        byteBuf.putUInt32LE(0);
+        byteBuf.putBytes(encryptedSecret);
+        send(AuthFrames.KEY_RESPONSE, byteBuf.getBytes());
+    }
+
+    private void onAppMessage(ByteBuf payload) throws Exception {
+        payload.skip(1); //Version
+        byte service = payload.readByte();
+        short command = payload.readShort();
+        ByteBuf data = payload.readSlice(payload.size());
+        ServiceHandler handler = services[service & 0xFF];
+        response.reset();
+        if (handler == null || (handler != connectionService && !connectionService.isActivated(service)))
+            response.setError(AppResponse.NOT_AVAILABLE);
+        else handler.handle(command, data, response);
+        long processingDelay = simulator.getProcessingDelay();
+        if (processingDelay > 0) Thread.sleep(processingDelay);
+        send(AuthFrames.DATA, response.encode(service, command));
+    }
+
+    private void reject(String reason) {
+        framesRejected++;
+        LOGGER.fine("Rejected frame: " + reason);
+    }
+
+    private void send(byte command, byte[] data) throws IOException {
+        boolean crc = AuthFrames.isCRCCommand(command);
+        Nonce nonce;
+        if (crc) {
+            crcNonce.increment();
+            nonce = crcNonce;
+        } else nonce = pairing.nextNonce();
+        long commID = pairing != null ? pairing.getCommID() : 0;
+        ByteBuf frame = AuthFrames.encode(command, data, nonce, commID,
+                crc ? null : pairing.getSessionCrypto().getOutgoing());
+        transport.write(frame.array(), 0, frame.size());
+        transport.flush();
+        framesSent++;
+    }
+}
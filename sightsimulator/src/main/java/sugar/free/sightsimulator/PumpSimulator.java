@@ -0,0 +1,177 @@
+package sugar.free.sightsimulator;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import lombok.Getter;
+import lombok.Setter;
+import sugar.free.sightparser.InMemoryTransport;
+import sugar.free.sightparser.TcpTransport;
+import sugar.free.sightparser.Transport;
+import sugar.free.sightparser.applayer.descriptors.Service;
+
+/**
+ * Simulates an Insight pump for load, latency and soak tests without hardware.
+ * The simulator speaks the auth layer including pairing and answers the status, history, configuration
+ * and remote control services from a {@link PumpState}. Clients connect over an {@link InMemoryTransport}
+ * or TCP, and the link can be degraded with {@link NetworkConditions}.
+ */
+public class PumpSimulator {
+
+    private static final Logger LOGGER = Logger.getLogger("SightSimulator");
+
+    @Getter
+    private final PumpState state;
+    private final String[] servicePasswords = new String[256];
+    private final List<PumpSession> sessions = new ArrayList<>();
+    private ServerSocket serverSocket;
+    private volatile Pairing pairing;
+
+    /**
+     * Applied to everything the pump writes and, for in-memory connections, to what the client writes.
+     */
+    @Getter
+    @Setter
+    private volatile NetworkConditions networkConditions = new NetworkConditions();
+
+    /**
+     * Milliseconds the pump takes to answer an app layer request.
+     */
+    @Getter
+    @Setter
+    private volatile long processingDelay = 0;
+
+    public PumpSimulator() {
+        this(new PumpState());
+    }
+
+    public PumpSimulator(PumpState state) {
+        this.state = state;
+        for (Service service : Service.values()) {
+            String password = service.getServicePassword();
+            if (password != null && password.length() == 16) servicePasswords[service.getServiceID() & 0xFF] = password;
+        }
+    }
+
+    /**
+     * @param password the password the client has to prove for this service, or null to accept any activation
+     */
+    public synchronized void setServicePassword(Service service, String password) {
+        servicePasswords[service.getServiceID() & 0xFF] = password;
+    }
+
+    synchronized String getServicePassword(byte serviceID) {
+        return servicePasswords[serviceID & 0xFF];
+    }
+
+    public Pairing getPairing() {
+        return pairing;
+    }
+
+    /**
+     * Replaces the stored pairing, pass null to make clients pair again.
+     */
+    public void setPairing(Pairing pairing) {
+        this.pairing = pairing;
+    }
+
+    /**
+     * Serves a connection on the given transport, which has to be connected already.
+     */
+    public PumpSession attach(Transport transport) throws IOException {
+        if (!networkConditions.isIdeal()) {
+            transport = new ImpairedTransport(transport, networkConditions);
+            transport.connect();
+        }
+        PumpSession session = new PumpSession(this, transport);
+        synchronized (this) {
+            sessions.add(session);
+        }
+        session.start();
+        return session;
+    }
+
+    /**
+     * Creates an in-memory link to the pump.
+     * @return the end of the client, not connected yet
+     */
+    public Transport connectInMemory(int mtu) throws IOException {
+        InMemoryTransport transport = new InMemoryTransport(mtu, InMemoryTransport.DEFAULT_CAPACITY);
+        transport.connect();
+        attach(transport);
+        InMemoryTransport peer = transport.getPeer();
+        return networkConditions.isIdeal() ? peer : new ImpairedTransport(peer, networkConditions);
+    }
+
+    /**
+     * Accepts TCP connections on a background thread until {@link #close()} is called.
+     */
+    public synchronized void listen(int port, final int mtu) throws IOException {
+        if (serverSocket != null) throw new IllegalStateException("Already listening");
+        final ServerSocket serverSocket = new ServerSocket(port);
+        this.serverSocket = serverSocket;
+        Thread thread = new Thread(() -> {
+            try {
+                while (!serverSocket.isClosed()) {
+                    Socket socket = serverSocket.accept();
+                    attach(new TcpTransport(socket, mtu));
+                }
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) LOGGER.warning("Accepting connections failed: " + e.getMessage());
+            }
+        }, "SightSimulatorServer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return the port the simulator listens on or -1
+     */
+    public synchronized int getPort() {
+        return serverSocket != null ? serverSocket.getLocalPort() : -1;
+    }
+
+    public synchronized List<PumpSession> getSessions() {
+        return new ArrayList<>(sessions);
+    }
+
+    synchronized void onSessionClosed(PumpSession session) {
+        sessions.remove(session);
+    }
+
+    /**
+     * Stops listening and closes all sessions.
+     */
+    public void close() throws IOException {
+        List<PumpSession> sessions;
+        synchronized (this) {
+            if (serverSocket != null) serverSocket.close();
+            serverSocket = null;
+            sessions = new ArrayList<>(this.sessions);
+        }
+        for (PumpSession session : sessions) session.close();
+    }
+
+    /**
+     * Runs a simulator on a TCP port.
+     * Arguments: port, number of history events, latency, jitter, packet loss, maximum fragment size.
+     */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7890;
+        PumpSimulator simulator = new PumpSimulator();
+        simulator.getState().getHistory().generate(args.length > 1 ? Integer.parseInt(args[1]) : 1000, 0);
+        NetworkConditions networkConditions = new NetworkConditions();
+        if (args.length > 2) networkConditions.setLatency(Long.parseLong(args[2]));
+        if (args.length > 3) networkConditions.setJitter(Long.parseLong(args[3]));
+        if (args.length > 4) networkConditions.setPacketLoss(Double.parseDouble(args[4]));
+        if (args.length > 5) networkConditions.setMaxFragmentSize(Integer.parseInt(args[5]));
+        simulator.setNetworkConditions(networkConditions);
+        simulator.listen(port, TcpTransport.DEFAULT_MTU);
+        LOGGER.info("Simulated pump listening on port " + simulator.getPort());
+        Thread.currentThread().join();
+    }
+}
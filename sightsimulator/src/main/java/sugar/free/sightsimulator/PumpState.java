@@ -0,0 +1,284 @@
+package sugar.free.sightsimulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+import sugar.free.sightparser.Helpers;
+import sugar.free.sightparser.ShortTable;
+import sugar.free.sightparser.applayer.descriptors.HistoryBolusType;
+import sugar.free.sightparser.applayer.descriptors.PumpStatus;
+import sugar.free.sightparser.applayer.descriptors.configuration_blocks.ActiveProfileBlock;
+import sugar.free.sightparser.applayer.descriptors.configuration_blocks.BRName1Block;
+import sugar.free.sightparser.applayer.descriptors.configuration_blocks.BRName2Block;
+import sugar.free.sightparser.applayer.descriptors.configuration_blocks.BRName3Block;
+import sugar.free.sightparser.applayer.descriptors.configuration_blocks.BRName4Block;
+import sugar.free.sightparser.applayer.descriptors.configuration_blocks.BRName5Block;
+import sugar.free.sightparser.applayer.descriptors.configuration_blocks.BRProfile1Block;
+import sugar.free.sightparser.applayer.descriptors.configuration_blocks.BRProfile2Block;
+import sugar.free.sightparser.applayer.descriptors.configuration_blocks.BRProfile3Block;
+import sugar.free.sightparser.applayer.descriptors.configuration_blocks.BRProfile4Block;
+import sugar.free.sightparser.applayer.descriptors.configuration_blocks.BRProfile5Block;
+import sugar.free.sightparser.applayer.descriptors.configuration_blocks.BRProfileBlock;
+import sugar.free.sightparser.applayer.descriptors.configuration_blocks.FactoryMaxBRAmountBlock;
+import sugar.free.sightparser.applayer.descriptors.configuration_blocks.FactoryMaxBolusAmountBlock;
+import sugar.free.sightparser.applayer.descriptors.configuration_blocks.FactoryMinBRAmountBlock;
+import sugar.free.sightparser.applayer.descriptors.configuration_blocks.FactoryMinBolusAmountBlock;
+import sugar.free.sightparser.applayer.descriptors.configuration_blocks.MaxBRAmountBlock;
+import sugar.free.sightparser.applayer.descriptors.configuration_blocks.MaxBolusAmountBlock;
+import sugar.free.sightparser.applayer.descriptors.configuration_blocks.NameBlock;
+import sugar.free.sightparser.pipeline.ByteBuf;
+
+/**
+ * The simulated pump, shared by all sessions of a {@link PumpSimulator}.
+ * Compound reads and updates have to hold the lock of this object.
+ */
+public class PumpState {
+
+    private static final long MINUTE = 60 * 1000;
+
+    private final ShortTable<byte[]> configurationBlocks = new ShortTable<>();
+    private final List<Bolus> activeBoluses = new ArrayList<>();
+    @Getter
+    private final HistoryLog history = new HistoryLog();
+
+    private PumpStatus pumpStatus = PumpStatus.STARTED;
+    private int nextBolusID = 1;
+    private int tbrAmount = 100;
+    private int tbrDuration = 0;
+    private long tbrStart = 0;
+    private double bolusTotal = 0;
+
+    @Getter
+    @Setter
+    private volatile int batteryAmount = 80;
+    @Getter
+    @Setter
+    private volatile double cartridgeAmount = 200;
+    @Getter
+    @Setter
+    private volatile String basalName = "Simulated";
+    @Getter
+    @Setter
+    private volatile double basalAmount = 0.8;
+    @Getter
+    @Setter
+    private volatile String serialNumber = "99999999";
+    @Getter
+    @Setter
+    private volatile String manufacturingDate = "2018-01-01";
+    @Getter
+    @Setter
+    private volatile String releaseSoftwareVersion = "SIMULATOR";
+
+    /**
+     * How many history frames are returned for a single read request.
+     */
+    @Getter
+    @Setter
+    private volatile int historyFramesPerRead = 8;
+
+    public PumpState() {
+        putAmountBlock(MaxBolusAmountBlock.ID, 25);
+        putAmountBlock(FactoryMaxBolusAmountBlock.ID, 25);
+        putAmountBlock(FactoryMinBolusAmountBlock.ID, 0.05);
+        putAmountBlock(MaxBRAmountBlock.ID, 5);
+        putAmountBlock(FactoryMaxBRAmountBlock.ID, 25);
+        putAmountBlock(FactoryMinBRAmountBlock.ID, 0.02);
+        ActiveProfileBlock activeProfileBlock = new ActiveProfileBlock();
+        activeProfileBlock.setActiveProfile(ActiveProfileBlock.ActiveProfile.BR_PROFILE_1);
+        setConfigurationBlock(ActiveProfileBlock.ID, activeProfileBlock.getData());
+        putProfile(new BRProfile1Block(), new BRName1Block(), "Profile 1");
+        putProfile(new BRProfile2Block(), new BRName2Block(), "Profile 2");
+        putProfile(new BRProfile3Block(), new BRName3Block(), "Profile 3");
+        putProfile(new BRProfile4Block(), new BRName4Block(), "Profile 4");
+        putProfile(new BRProfile5Block(), new BRName5Block(), "Profile 5");
+    }
+
+    private void putAmountBlock(short id, double amount) {
+        ByteBuf byteBuf = new ByteBuf(2);
+        byteBuf.putUInt16LE(Helpers.roundDoubleToInt(amount * 100D));
+        setConfigurationBlock(id, byteBuf.getBytes());
+    }
+
+    private void putProfile(BRProfileBlock profileBlock, NameBlock nameBlock, String name) {
+        List<BRProfileBlock.ProfileBlock> profileBlocks = new ArrayList<>();
+        for (int i = 0; i < 24; i++) profileBlocks.add(new BRProfileBlock.ProfileBlock(60, basalAmount));
+        profileBlock.setProfileBlocks(profileBlocks);
+        setConfigurationBlock(profileBlock.getID(), profileBlock.getData());
+        nameBlock.setName(name);
+        setConfigurationBlock(nameBlock.getID(), nameBlock.getData());
+    }
+
+    public synchronized double getBolusTotal() {
+        return bolusTotal;
+    }
+
+    public synchronized byte[] getConfigurationBlock(short id) {
+        byte[] data = configurationBlocks.get(id);
+        return data == null ? null : Arrays.copyOf(data, data.length);
+    }
+
+    public synchronized void setConfigurationBlock(short id, byte[] data) {
+        configurationBlocks.put(id, Arrays.copyOf(data, data.length));
+    }
+
+    public synchronized double getMaxBolusAmount() {
+        byte[] data = configurationBlocks.get(MaxBolusAmountBlock.ID);
+        return data == null ? Double.MAX_VALUE : ByteBuf.wrap(data).getUInt16LE(0) / 100D;
+    }
+
+    public synchronized PumpStatus getPumpStatus() {
+        return pumpStatus;
+    }
+
+    /**
+     * Changes the status and records it in the history, stopping or pausing the pump ends the temporary basal rate and all boluses.
+     */
+    public synchronized void setPumpStatus(PumpStatus pumpStatus) {
+        if (this.pumpStatus == pumpStatus) return;
+        if (pumpStatus != PumpStatus.STARTED) {
+            stopTBR();
+            activeBoluses.clear();
+        }
+        history.add(HistoryLog.PUMP_STATUS_CHANGED, System.currentTimeMillis(),
+                HistoryLog.pumpStatusChanged(this.pumpStatus, pumpStatus));
+        this.pumpStatus = pumpStatus;
+    }
+
+    public synchronized boolean isTBRRunning() {
+        expireTBR();
+        return tbrDuration != 0;
+    }
+
+    public synchronized int getTBRAmount() {
+        expireTBR();
+        return tbrAmount;
+    }
+
+    public synchronized int getTBRDuration() {
+        expireTBR();
+        return tbrDuration;
+    }
+
+    /**
+     * @return the remaining minutes of the temporary basal rate
+     */
+    public synchronized int getTBRLeftover() {
+        expireTBR();
+        if (tbrDuration == 0) return 0;
+        return (int) Math.max(0, tbrDuration - (System.currentTimeMillis() - tbrStart) / MINUTE);
+    }
+
+    public synchronized void startTBR(int amount, int duration) {
+        tbrAmount = amount;
+        tbrDuration = duration;
+        tbrStart = System.currentTimeMillis();
+    }
+
+    /**
+     * Ends the temporary basal rate and records it in the history.
+     */
+    public synchronized void stopTBR() {
+        if (tbrDuration == 0) return;
+        long now = System.currentTimeMillis();
+        int duration = (int) Math.min(tbrDuration, (now - tbrStart) / MINUTE);
+        history.add(HistoryLog.END_OF_TBR, now, HistoryLog.endOfTBR(tbrStart, tbrAmount, duration));
+        tbrAmount = 100;
+        tbrDuration = 0;
+    }
+
+    private void expireTBR() {
+        if (tbrDuration == 0) return;
+        long end = tbrStart + tbrDuration * MINUTE;
+        if (System.currentTimeMillis() < end) return;
+        history.add(HistoryLog.END_OF_TBR, end, HistoryLog.endOfTBR(tbrStart, tbrAmount, tbrDuration));
+        tbrAmount = 100;
+        tbrDuration = 0;
+    }
+
+    /**
+     * Programs a bolus, the immediate part is delivered right away and extended parts run for their duration.
+     * @return the ID of the bolus
+     */
+    public synchronized int startBolus(HistoryBolusType bolusType, double immediateAmount, double extendedAmount, int duration) {
+        int bolusID = nextBolusID++;
+        long now = System.currentTimeMillis();
+        history.add(HistoryLog.BOLUS_PROGRAMMED, now,
+                HistoryLog.bolusProgrammed(bolusType, immediateAmount, extendedAmount, duration, bolusID));
+        if (bolusType == HistoryBolusType.STANDARD) {
+            history.add(HistoryLog.BOLUS_DELIVERED, now,
+                    HistoryLog.bolusDelivered(bolusType, now, immediateAmount, 0, 0, bolusID));
+        } else activeBoluses.add(new Bolus(bolusID, bolusType, immediateAmount, extendedAmount, duration, now));
+        double amount = immediateAmount + extendedAmount;
+        cartridgeAmount = Math.max(0, Helpers.roundDouble(cartridgeAmount - amount));
+        bolusTotal = Helpers.roundDouble(bolusTotal + amount);
+        return bolusID;
+    }
+
+    /**
+     * @return false if there is no running bolus with this ID
+     */
+    public synchronized boolean cancelBolus(int bolusID) {
+        expireBoluses();
+        for (Iterator<Bolus> iterator = activeBoluses.iterator(); iterator.hasNext(); ) {
+            Bolus bolus = iterator.next();
+            if (bolus.bolusID != bolusID) continue;
+            iterator.remove();
+            long now = System.currentTimeMillis();
+            history.add(HistoryLog.BOLUS_DELIVERED, now, HistoryLog.bolusDelivered(bolus.bolusType, bolus.start,
+                    bolus.immediateAmount, bolus.extendedAmount - bolus.getLeftoverAmount(now),
+                    (int) ((now - bolus.start) / MINUTE), bolusID));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the running extended and multiwave boluses
+     */
+    public synchronized List<Bolus> getActiveBoluses() {
+        expireBoluses();
+        return new ArrayList<>(activeBoluses);
+    }
+
+    private void expireBoluses() {
+        long now = System.currentTimeMillis();
+        for (Iterator<Bolus> iterator = activeBoluses.iterator(); iterator.hasNext(); ) {
+            Bolus bolus = iterator.next();
+            long end = bolus.start + bolus.duration * MINUTE;
+            if (now < end) continue;
+            iterator.remove();
+            history.add(HistoryLog.BOLUS_DELIVERED, end, HistoryLog.bolusDelivered(bolus.bolusType, bolus.start,
+                    bolus.immediateAmount, bolus.extendedAmount, bolus.duration, bolus.bolusID));
+        }
+    }
+
+    @Getter
+    public static class Bolus {
+
+        private final int bolusID;
+        private final HistoryBolusType bolusType;
+        private final double immediateAmount;
+        private final double extendedAmount;
+        private final int duration;
+        private final long start;
+
+        private Bolus(int bolusID, HistoryBolusType bolusType, double immediateAmount, double extendedAmount, int duration, long start) {
+            this.bolusID = bolusID;
+            this.bolusType = bolusType;
+            this.immediateAmount = immediateAmount;
+            this.extendedAmount = extendedAmount;
+            this.duration = duration;
+            this.start = start;
+        }
+
+        public double getLeftoverAmount(long time) {
+            double elapsed = Math.min(1, (double) (time - start) / (duration * MINUTE));
+            return Helpers.roundDouble(extendedAmount * (1 - elapsed));
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package sugar.free.sightsimulator;
+
+import sugar.free.sightparser.applayer.descriptors.HistoryBolusType;
+import sugar.free.sightparser.applayer.descriptors.PumpStatus;
+import sugar.free.sightparser.pipeline.ByteBuf;
+
+class RemoteControlService implements ServiceHandler {
+
+    private final PumpState state;
+
+    RemoteControlService(PumpState state) {
+        this.state = state;
+    }
+
+    @Override
+    public void handle(short command, ByteBuf data, AppResponse response) {
+        if (command == (short) 0xDA18) {
+            availableBoluses(response);
+            return;
+        } else if (command == 0x3918) {
+            cancelTBR(response);
+            return;
+        }
+        ByteBuf payload = AppResponse.openCRC(data);
+        if (payload == null) {
+            response.setError(AppResponse.NOT_AVAILABLE);
+            return;
+        }
+        switch (command) {
+            case (short) 0xC518:
+            case 0x53A4:
+                setTBR(command == 0x53A4, payload, response);
+                break;
+            case 0x031B:
+                bolus(payload, response);
+                break;
+            case (short) 0xE01B:
+                if (!state.cancelBolus(payload.getUInt16LE(0))) response.setError(AppResponse.NOT_AVAILABLE);
+                break;
+            case 0x2618:
+                setPumpStatus(payload, response);
+                break;
+            case (short) 0x8C06:
+            case (short) 0x9306:
+                break;
+            default:
+                response.setError(AppResponse.NOT_AVAILABLE);
+        }
+    }
+
+    private void availableBoluses(AppResponse response) {
+        boolean available = state.getPumpStatus() == PumpStatus.STARTED;
+        ByteBuf byteBuf = new ByteBuf(6);
+        byteBuf.putBoolean(available);
+        byteBuf.putBoolean(available);
+        byteBuf.putBoolean(available);
+        response.setData(byteBuf.getBytes());
+    }
+
+    private void setTBR(boolean change, ByteBuf payload, AppResponse response) {
+        int amount = payload.readUInt16LE();
+        int duration = payload.readUInt16LE();
+        synchronized (state) {
+            if (state.getPumpStatus() != PumpStatus.STARTED || change != state.isTBRRunning())
+                response.setError(AppResponse.NOT_AVAILABLE);
+            else {
+                if (change) state.stopTBR();
+                state.startTBR(amount, duration);
+            }
+        }
+    }
+
+    private void cancelTBR(AppResponse response) {
+        synchronized (state) {
+            if (!state.isTBRRunning()) response.setError(AppResponse.ALREADY_IN_THAT_STATE);
+            else state.stopTBR();
+        }
+    }
+
+    /**
+     * Immediate amount, extended amount and duration follow the same layout for all bolus types.
+     */
+    private void bolus(ByteBuf payload, AppResponse response) {
+        HistoryBolusType bolusType = HistoryBolusType.getBolusType(payload.getShort(2));
+        double immediateAmount = payload.getUInt16LE(8) / 100D;
+        double extendedAmount = payload.getUInt16LE(10) / 100D;
+        int duration = payload.getUInt16LE(12);
+        if (bolusType == null) {
+            response.setError(AppResponse.NOT_AVAILABLE);
+            return;
+        }
+        if (bolusType == HistoryBolusType.EXTENDED) {
+            extendedAmount = immediateAmount + extendedAmount;
+            immediateAmount = 0;
+        }
+        int bolusID;
+        synchronized (state) {
+            if (state.getPumpStatus() != PumpStatus.STARTED) {
+                response.setError(AppResponse.NOT_AVAILABLE);
+                return;
+            } else if (immediateAmount + extendedAmount > state.getMaxBolusAmount()) {
+                response.setError(AppResponse.BOLUS_AMOUNT_LIMIT_EXCEEDED);
+                return;
+            } else if (bolusType != HistoryBolusType.STANDARD && duration == 0) {
+                response.setError(AppResponse.BOLUS_DURATION_LIMIT_EXCEEDED);
+                return;
+            }
+            bolusID = state.startBolus(bolusType, immediateAmount, extendedAmount, duration);
+        }
+        ByteBuf byteBuf = new ByteBuf(2);
+        byteBuf.putUInt16LE(bolusID);
+        response.setDataWithCRC(byteBuf.getBytes());
+    }
+
+    private void setPumpStatus(ByteBuf payload, AppResponse response) {
+        PumpStatus pumpStatus = PumpStatus.getPumpStatus(payload.getShort(0));
+        synchronized (state) {
+            if (pumpStatus == null) response.setError(AppResponse.NOT_AVAILABLE);
+            else if (pumpStatus == state.getPumpStatus()) response.setError(AppResponse.ALREADY_IN_THAT_STATE);
+            else state.setPumpStatus(pumpStatus);
+        }
+    }
+}
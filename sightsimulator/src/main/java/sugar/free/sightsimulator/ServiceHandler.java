@@ -0,0 +1,14 @@
+package sugar.free.sightsimulator;
+
+import sugar.free.sightparser.pipeline.ByteBuf;
+
+/**
+ * Answers the app layer requests of one service.
+ */
+interface ServiceHandler {
+
+    /**
+     * @param data the request payload behind the command, including the checksum if the client appends one
+     */
+    void handle(short command, ByteBuf data, AppResponse response) throws Exception;
+}
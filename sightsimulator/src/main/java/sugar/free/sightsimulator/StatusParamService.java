@@ -0,0 +1,29 @@
+package sugar.free.sightsimulator;
+
+import sugar.free.sightparser.applayer.descriptors.RestrictionLevel;
+import sugar.free.sightparser.applayer.descriptors.status_param_blocks.SystemIdentificationBlock;
+import sugar.free.sightparser.pipeline.ByteBuf;
+
+class StatusParamService implements ServiceHandler {
+
+    private final PumpState state;
+
+    StatusParamService(PumpState state) {
+        this.state = state;
+    }
+
+    @Override
+    public void handle(short command, ByteBuf data, AppResponse response) {
+        if (command != 0x561E || data.size() < 2 || data.getShort(0) != SystemIdentificationBlock.ID) {
+            response.setError(AppResponse.NOT_AVAILABLE);
+            return;
+        }
+        ByteBuf byteBuf = new ByteBuf(52);
+        byteBuf.putShort(SystemIdentificationBlock.ID);
+        byteBuf.putShort(RestrictionLevel.PUMP.getValue());
+        byteBuf.putUTF16LE(state.getSerialNumber(), 20);
+        byteBuf.putUInt32LE(0);
+        byteBuf.putUTF16LE(state.getManufacturingDate(), 24);
+        response.setDataWithCRC(byteBuf.getBytes());
+    }
+}
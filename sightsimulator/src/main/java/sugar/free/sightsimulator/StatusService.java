@@ -0,0 +1,163 @@
+package sugar.free.sightsimulator;
+
+import java.nio.charset.Charset;
+import java.util.Calendar;
+import java.util.List;
+
+import sugar.free.sightparser.Helpers;
+import sugar.free.sightparser.applayer.descriptors.ActiveBolusType;
+import sugar.free.sightparser.applayer.descriptors.HistoryBolusType;
+import sugar.free.sightparser.pipeline.ByteBuf;
+
+class StatusService implements ServiceHandler {
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    private final PumpState state;
+
+    StatusService(PumpState state) {
+        this.state = state;
+    }
+
+    @Override
+    public void handle(short command, ByteBuf data, AppResponse response) {
+        switch (command) {
+            case (short) 0xFC00:
+                response.setDataWithCRC(pumpStatus());
+                break;
+            case (short) 0xA905:
+                response.setDataWithCRC(currentBasal());
+                break;
+            case 0x3A03:
+                response.setData(cartridgeAmount());
+                break;
+            case 0x2503:
+                response.setData(batteryAmount());
+                break;
+            case (short) 0xB605:
+                response.setDataWithCRC(currentTBR());
+                break;
+            case 0x6F06:
+                response.setDataWithCRC(activeBoluses());
+                break;
+            case (short) 0xD82E:
+                response.setData(firmwareVersion());
+                break;
+            case 0x4A05:
+                response.setData(warrantyTimer());
+                break;
+            case (short) 0xE300:
+                response.setDataWithCRC(dateTime());
+                break;
+            case (short) 0xD903:
+                response.setDataWithCRC(new byte[8]);
+                break;
+            case (short) 0xC603:
+                response.setDataWithCRC(dailyTotal());
+                break;
+            default:
+                response.setError(AppResponse.NOT_AVAILABLE);
+        }
+    }
+
+    private byte[] pumpStatus() {
+        ByteBuf byteBuf = new ByteBuf(2);
+        byteBuf.putShort(state.getPumpStatus().getValue());
+        return byteBuf.getBytes();
+    }
+
+    private byte[] currentBasal() {
+        ByteBuf byteBuf = new ByteBuf(66);
+        byteBuf.putBytes((byte) 0x00, 2);
+        byteBuf.putUTF16LE(state.getBasalName(), 62);
+        byteBuf.putUInt16LE(Helpers.roundDoubleToInt(state.getBasalAmount() * 100D));
+        return byteBuf.getBytes();
+    }
+
+    private byte[] cartridgeAmount() {
+        ByteBuf byteBuf = new ByteBuf(8);
+        byteBuf.putBytes((byte) 0x00, 6);
+        byteBuf.putUInt16LE(Helpers.roundDoubleToInt(state.getCartridgeAmount() * 100D));
+        return byteBuf.getBytes();
+    }
+
+    private byte[] batteryAmount() {
+        ByteBuf byteBuf = new ByteBuf(4);
+        byteBuf.putBytes((byte) 0x00, 2);
+        byteBuf.putUInt16LE(state.getBatteryAmount());
+        return byteBuf.getBytes();
+    }
+
+    private byte[] currentTBR() {
+        ByteBuf byteBuf = new ByteBuf(6);
+        synchronized (state) {
+            byteBuf.putUInt16LE(state.getTBRAmount());
+            byteBuf.putUInt16LE(state.getTBRLeftover());
+            byteBuf.putUInt16LE(state.getTBRDuration());
+        }
+        return byteBuf.getBytes();
+    }
+
+    private byte[] activeBoluses() {
+        List<PumpState.Bolus> boluses = state.getActiveBoluses();
+        long now = System.currentTimeMillis();
+        ByteBuf byteBuf = new ByteBuf(42);
+        for (int i = 0; i < 3; i++) {
+            if (i >= boluses.size()) {
+                byteBuf.putBytes((byte) 0x00, 14);
+                continue;
+            }
+            PumpState.Bolus bolus = boluses.get(i);
+            byteBuf.putUInt16LE(bolus.getBolusID());
+            byteBuf.putShort(bolus.getBolusType() == HistoryBolusType.EXTENDED
+                    ? ActiveBolusType.EXTENDED.getValue() : ActiveBolusType.MULTIWAVE.getValue());
+            byteBuf.putBytes((byte) 0x00, 4);
+            byteBuf.putUInt16LE(Helpers.roundDoubleToInt(bolus.getExtendedAmount() * 100D));
+            byteBuf.putUInt16LE(Helpers.roundDoubleToInt(bolus.getLeftoverAmount(now) * 100D));
+            byteBuf.putUInt16LE(bolus.getDuration());
+        }
+        return byteBuf.getBytes();
+    }
+
+    private byte[] firmwareVersion() {
+        ByteBuf byteBuf = new ByteBuf(82);
+        putASCII(byteBuf, state.getReleaseSoftwareVersion(), 14);
+        for (int i = 0; i < 5; i++) putASCII(byteBuf, "SIM", 12);
+        byteBuf.putBytes((byte) 0x00, 8);
+        return byteBuf.getBytes();
+    }
+
+    private byte[] warrantyTimer() {
+        ByteBuf byteBuf = new ByteBuf(2);
+        byteBuf.putUInt16LE(0);
+        return byteBuf.getBytes();
+    }
+
+    private byte[] dateTime() {
+        Calendar calendar = Calendar.getInstance();
+        ByteBuf byteBuf = new ByteBuf(7);
+        byteBuf.putUInt16LE(calendar.get(Calendar.YEAR));
+        byteBuf.putByte((byte) (calendar.get(Calendar.MONTH) + 1));
+        byteBuf.putByte((byte) calendar.get(Calendar.DAY_OF_MONTH));
+        byteBuf.putByte((byte) calendar.get(Calendar.HOUR_OF_DAY));
+        byteBuf.putByte((byte) calendar.get(Calendar.MINUTE));
+        byteBuf.putByte((byte) calendar.get(Calendar.SECOND));
+        return byteBuf.getBytes();
+    }
+
+    private byte[] dailyTotal() {
+        double basalTotal = state.getBasalAmount() * Calendar.getInstance().get(Calendar.HOUR_OF_DAY);
+        double bolusTotal = state.getBolusTotal();
+        ByteBuf byteBuf = new ByteBuf(12);
+        byteBuf.putUInt32LE(Helpers.roundDoubleToInt(bolusTotal * 100D));
+        byteBuf.putUInt32LE(Helpers.roundDoubleToInt(basalTotal * 100D));
+        byteBuf.putUInt32LE(Helpers.roundDoubleToInt((bolusTotal + basalTotal) * 100D));
+        return byteBuf.getBytes();
+    }
+
+    private static void putASCII(ByteBuf byteBuf, String string, int length) {
+        byte[] bytes = string.getBytes(ASCII);
+        byteBuf.putBytes(bytes, Math.min(bytes.length, length));
+        if (bytes.length < length) byteBuf.putBytes((byte) 0x00, length - bytes.length);
+    }
+}